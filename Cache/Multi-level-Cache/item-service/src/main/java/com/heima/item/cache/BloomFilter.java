@@ -0,0 +1,73 @@
+package com.heima.item.cache;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * long类型id的布隆过滤器，线程安全，只能添加不能删除。
+ * <p>
+ * 位数 m = -n·ln(p) / (ln2)²，哈希次数 k = m/n·ln2；
+ * k个位置由一次64位混合哈希拆成两个32位值做双重哈希 h1 + i·h2 得到。
+ */
+public class BloomFilter {
+
+    private final AtomicLongArray bits;
+
+    private final long bitSize;
+
+    private final int hashes;
+
+    public BloomFilter(long expectedInsertions, double fpp) {
+        long n = Math.max(expectedInsertions, 1);
+        // 位置由int算出，位数不超过Integer.MAX_VALUE
+        long m = Math.min((long) (-n * Math.log(fpp) / (Math.log(2) * Math.log(2))), Integer.MAX_VALUE);
+        this.bits = new AtomicLongArray((int) ((Math.max(m, 64) + 63) >>> 6));
+        this.bitSize = bits.length() * 64L;
+        this.hashes = Math.max(1, (int) Math.round((double) m / n * Math.log(2)));
+    }
+
+    public void put(long id) {
+        long hash = mix(id);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashes; i++) {
+            long index = index(h1 + i * h2);
+            int word = (int) (index >>> 6);
+            long mask = 1L << index;
+            long current;
+            do {
+                current = bits.get(word);
+                if ((current & mask) != 0) {
+                    break;
+                }
+            } while (!bits.compareAndSet(word, current, current | mask));
+        }
+    }
+
+    public boolean mightContain(long id) {
+        long hash = mix(id);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashes; i++) {
+            long index = index(h1 + i * h2);
+            if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long index(int combined) {
+        // 负数取反，保证落在[0, bitSize)
+        return (combined < 0 ? ~combined : combined) % bitSize;
+    }
+
+    // MurmurHash3的fmix64，连续id也能打散
+    private static long mix(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb93fe53a87ceL;
+        k ^= k >>> 33;
+        return k;
+    }
+}
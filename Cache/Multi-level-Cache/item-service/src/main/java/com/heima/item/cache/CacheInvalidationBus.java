@@ -0,0 +1,51 @@
+package com.heima.item.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * 缓存失效总线：写数据库后删除Redis中的L2，再通过Redis pub/sub通知所有实例（包括自己）删除本地L1。
+ * <p>
+ * 消息格式为 {@code <cache名称>:<id>}。pub/sub不保证送达，错过的通知由L1的过期时间兜底。
+ */
+@Slf4j
+@Component
+public class CacheInvalidationBus implements MessageListener {
+
+    public static final String CHANNEL = "cache:invalidate";
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private List<MultiLevelCache<?>> caches;
+
+    public void invalidate(MultiLevelCache<?> cache, Long id) {
+        cache.evict(id);
+        try {
+            redisTemplate.convertAndSend(CHANNEL, cache.getName() + ":" + id);
+        } catch (RuntimeException e) {
+            log.warn("发布缓存失效消息失败, cache={}, id={}", cache.getName(), id, e);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int separator = body.lastIndexOf(':');
+        String name = body.substring(0, separator);
+        Long id = Long.valueOf(body.substring(separator + 1));
+        for (MultiLevelCache<?> cache : caches) {
+            if (cache.getName().equals(name)) {
+                cache.evictLocal(id);
+            }
+        }
+    }
+}
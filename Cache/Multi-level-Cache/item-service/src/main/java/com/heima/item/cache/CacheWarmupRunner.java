@@ -0,0 +1,88 @@
+package com.heima.item.cache;
+
+import com.heima.item.config.WarmupProperties;
+import com.heima.item.pojo.Item;
+import com.heima.item.pojo.ItemStock;
+import com.heima.item.service.IItemService;
+import com.heima.item.service.IItemStockService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 启动预热：ApplicationRunner在实例报告就绪(readiness)之前执行，
+ * 所以预热完成前不会接收流量。按配置的策略选出热点商品id，
+ * 分批通过getAll加载（先查Redis，未命中的一次查询数据库）。
+ */
+@Slf4j
+@Component
+public class CacheWarmupRunner implements ApplicationRunner {
+
+    @Autowired
+    private WarmupProperties properties;
+
+    @Autowired
+    private IItemService itemService;
+
+    @Autowired
+    private IItemStockService stockService;
+
+    @Autowired
+    private MultiLevelCache<Item> itemCache;
+
+    @Autowired
+    private MultiLevelCache<ItemStock> stockCache;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            List<Long> ids = hotIds();
+            int batchSize = properties.getBatchSize();
+            for (int i = 0; i < ids.size(); i += batchSize) {
+                List<Long> batch = ids.subList(i, Math.min(i + batchSize, ids.size()));
+                itemCache.getAll(batch, itemService::mapByIds);
+                stockCache.getAll(batch, stockService::mapByIds);
+            }
+            log.info("缓存预热完成, 策略={}, 商品数={}, 耗时{}ms",
+                    properties.getStrategy(), ids.size(), System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            // 预热失败不影响启动，只是冷启动
+            log.warn("缓存预热失败", e);
+        }
+    }
+
+    private List<Long> hotIds() {
+        int size = properties.getSize();
+        switch (properties.getStrategy()) {
+            case HOT_LIST:
+                List<Long> hotIds = properties.getHotIds();
+                return hotIds.subList(0, Math.min(size, hotIds.size()));
+            case ID_RANGE:
+                return itemService.query()
+                        .select("id")
+                        .ne("status", 3).ge("id", properties.getMinId())
+                        .orderByAsc("id")
+                        .last("limit " + size)
+                        .list()
+                        .stream().map(Item::getId).collect(Collectors.toList());
+            case SOLD_RANK:
+            default:
+                // 主键列是item_id，要起别名才能映射到ItemStock.id
+                return stockService.query()
+                        .select("item_id AS id")
+                        .orderByDesc("sold")
+                        .last("limit " + size)
+                        .list()
+                        .stream().map(ItemStock::getId).collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.heima.item.cache;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * /actuator/hotkeys 各缓存访问最多的id，/actuator/hotkeys/{cache} 单个缓存
+ */
+@Component
+@Endpoint(id = "hotkeys")
+public class HotKeyEndpoint {
+
+    private static final int TOP = 20;
+
+    @Autowired
+    private List<MultiLevelCache<?>> caches;
+
+    @ReadOperation
+    public Map<String, List<HotKeyTracker.HotKey>> hotKeys() {
+        Map<String, List<HotKeyTracker.HotKey>> hotKeys = new LinkedHashMap<>();
+        for (MultiLevelCache<?> cache : caches) {
+            hotKeys.put(cache.getName(), cache.getHotKeys().top(TOP));
+        }
+        return hotKeys;
+    }
+
+    @ReadOperation
+    public List<HotKeyTracker.HotKey> hotKeys(@Selector String cache) {
+        for (MultiLevelCache<?> multiLevelCache : caches) {
+            if (multiLevelCache.getName().equals(cache)) {
+                return multiLevelCache.getHotKeys().top(TOP);
+            }
+        }
+        return Collections.emptyList();
+    }
+}
@@ -0,0 +1,79 @@
+package com.heima.item.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 热点key统计，Space-Saving算法：最多跟踪capacity个key，满了以后新key顶替计数最小的key，
+ * 并继承它的计数作为误差上限。访问量排在前面的key一定在其中，计数最多高估error。
+ * <p>
+ * 只按sampleRate抽样记录，减少加锁次数，报告时按抽样率还原成估计的访问次数。
+ */
+public class HotKeyTracker {
+
+    private final int capacity;
+
+    private final double sampleRate;
+
+    // key -> {计数, 误差}
+    private final Map<Long, long[]> counters;
+
+    public HotKeyTracker(int capacity, double sampleRate) {
+        this.capacity = capacity;
+        this.sampleRate = sampleRate;
+        this.counters = new HashMap<>(capacity * 2);
+    }
+
+    public void record(Long key) {
+        if (sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return;
+        }
+        synchronized (this) {
+            long[] counter = counters.get(key);
+            if (counter != null) {
+                counter[0]++;
+                return;
+            }
+            if (counters.size() < capacity) {
+                counters.put(key, new long[]{1, 0});
+                return;
+            }
+            Long minKey = null;
+            long[] min = null;
+            for (Map.Entry<Long, long[]> entry : counters.entrySet()) {
+                if (min == null || entry.getValue()[0] < min[0]) {
+                    minKey = entry.getKey();
+                    min = entry.getValue();
+                }
+            }
+            counters.remove(minKey);
+            counters.put(key, new long[]{min[0] + 1, min[0]});
+        }
+    }
+
+    public List<HotKey> top(int n) {
+        List<HotKey> hotKeys = new ArrayList<>();
+        synchronized (this) {
+            counters.forEach((key, counter) -> hotKeys.add(new HotKey(key,
+                    Math.round(counter[0] / sampleRate), Math.round(counter[1] / sampleRate))));
+        }
+        hotKeys.sort((a, b) -> Long.compare(b.getCount(), a.getCount()));
+        return hotKeys.subList(0, Math.min(n, hotKeys.size()));
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class HotKey {
+        private Long id;
+        // 估计的访问次数
+        private long count;
+        // count最多高估这么多
+        private long error;
+    }
+}
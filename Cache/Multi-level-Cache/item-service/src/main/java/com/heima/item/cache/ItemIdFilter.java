@@ -0,0 +1,201 @@
+package com.heima.item.cache;
+
+import com.heima.item.config.BloomProperties;
+import com.heima.item.pojo.Item;
+import com.heima.item.service.IItemService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 防缓存穿透：用布隆过滤器记录所有有效商品(status != 3)的id，过滤器中没有的id不查缓存和数据库。
+ * <p>
+ * 启动时在实例就绪之前从tb_item构建，之后每rebuildInterval重建一次。
+ * 新增/删除通过Redis pub/sub通知所有实例（消息为 {@code +id} / {@code -id}），
+ * 布隆过滤器不能删除，删除的id另外记在一个集合里，下次重建时清空。
+ * 过滤器建好之前、或者关闭时，所有id都放行。
+ * <p>
+ * pub/sub消息可能丢失，而过滤器不能把存在的商品判为不存在。id是自增的，
+ * 比构建时最大id还大的id是之后新增的，不管有没有收到通知都放行，由数据库和空值缓存判断。
+ */
+@Slf4j
+@Component
+public class ItemIdFilter implements ApplicationRunner, MessageListener {
+
+    public static final String CHANNEL = "item:ids";
+
+    @Autowired
+    private BloomProperties properties;
+
+    @Autowired
+    private IItemService itemService;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    private volatile BloomFilter filter;
+
+    // 构建filter时tb_item中的最大id，更大的id一律放行；先写filter再写它，读的时候反过来
+    private volatile long coveredMaxId;
+
+    private volatile Set<Long> removed = ConcurrentHashMap.newKeySet();
+
+    // 重建期间新增/删除的id同时记到正在构建的过滤器里
+    private volatile BloomFilter building;
+
+    private volatile Set<Long> removedBuilding;
+
+    private ScheduledExecutorService scheduler;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        rebuildSafely();
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "item-id-filter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = properties.getRebuildInterval();
+        scheduler.scheduleWithFixedDelay(this::rebuildSafely, interval, interval, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+
+    public boolean mightExist(Long id) {
+        long maxId = coveredMaxId;
+        BloomFilter current = filter;
+        if (current == null) {
+            return true;
+        }
+        if (removed.contains(id)) {
+            return false;
+        }
+        return id > maxId || current.mightContain(id);
+    }
+
+    public void add(Long id) {
+        addLocal(id);
+        publish("+" + id);
+    }
+
+    public void remove(Long id) {
+        removeLocal(id);
+        publish("-" + id);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        Long id = Long.valueOf(body.substring(1));
+        if (body.charAt(0) == '+') {
+            addLocal(id);
+        } else {
+            removeLocal(id);
+        }
+    }
+
+    // 先写building再写filter：重建切换时先替换filter再清空building，两者总有一个是新过滤器
+    private void addLocal(Long id) {
+        BloomFilter next = building;
+        if (next != null) {
+            next.put(id);
+        }
+        Set<Long> nextRemoved = removedBuilding;
+        if (nextRemoved != null) {
+            nextRemoved.remove(id);
+        }
+        BloomFilter current = filter;
+        if (current != null) {
+            current.put(id);
+        }
+        removed.remove(id);
+    }
+
+    private void removeLocal(Long id) {
+        Set<Long> nextRemoved = removedBuilding;
+        if (nextRemoved != null) {
+            nextRemoved.add(id);
+        }
+        removed.add(id);
+    }
+
+    private void publish(String message) {
+        try {
+            redisTemplate.convertAndSend(CHANNEL, message);
+        } catch (RuntimeException e) {
+            // 新增的id靠coveredMaxId放行，删除的id在其他实例上要到下次重建才会被拦截
+            log.error("发布商品id变更消息失败, message={}", message, e);
+        }
+    }
+
+    private void rebuildSafely() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            // 重建失败继续用旧的过滤器
+            log.error("重建商品id布隆过滤器失败", e);
+            building = null;
+            removedBuilding = null;
+        }
+    }
+
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        long count = itemService.query().ne("status", 3).count();
+        BloomFilter next = new BloomFilter(Math.max(properties.getExpectedInsertions(), count * 2), properties.getFpp());
+        Set<Long> nextRemoved = ConcurrentHashMap.newKeySet();
+        // 先发布building再扫描，之后提交的新增一定会被扫描到或者记到building里
+        removedBuilding = nextRemoved;
+        building = next;
+        // 扫描开始前的最大id，扫描期间新增的id比它大，切换后照样放行
+        Item last = itemService.query().select("id").orderByDesc("id").last("limit 1").one();
+        long maxId = last == null ? 0 : last.getId();
+
+        int batchSize = properties.getScanBatchSize();
+        long lastId = 0;
+        int total = 0;
+        List<Item> items;
+        do {
+            items = itemService.query()
+                    .select("id")
+                    .ne("status", 3).gt("id", lastId)
+                    .orderByAsc("id")
+                    .last("limit " + batchSize)
+                    .list();
+            for (Item item : items) {
+                next.put(item.getId());
+                lastId = item.getId();
+            }
+            total += items.size();
+        } while (items.size() == batchSize);
+
+        filter = next;
+        coveredMaxId = maxId;
+        removed = nextRemoved;
+        building = null;
+        removedBuilding = null;
+        log.info("商品id布隆过滤器构建完成, 商品数={}, 耗时{}ms", total, System.currentTimeMillis() - start);
+    }
+}
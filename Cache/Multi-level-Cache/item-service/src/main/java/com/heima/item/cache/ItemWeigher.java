@@ -0,0 +1,56 @@
+package com.heima.item.cache;
+
+import com.github.benmanes.caffeine.cache.Weigher;
+import com.heima.item.pojo.Item;
+
+/**
+ * 估算商品在本地缓存中占用的堆内存，字节。按64位JVM、压缩指针估算，只用于限制缓存总量，不求精确：
+ * <ul>
+ *     <li>压缩存储时是一个byte[]</li>
+ *     <li>对象存储时是Item本身加上它引用的String、Long、Integer、Date</li>
+ * </ul>
+ * 都加上Caffeine节点和Long类型key的开销。
+ */
+public class ItemWeigher implements Weigher<Long, Object> {
+
+    // Caffeine节点（带过期时间）+ Long key
+    private static final int ENTRY_OVERHEAD = 80;
+
+    // 对象头12 + 12个引用字段4，对齐到8
+    private static final int ITEM_SHALLOW = 64;
+
+    private static final int BOXED_LONG = 24;
+    private static final int BOXED_INTEGER = 16;
+    private static final int DATE = 24;
+
+    @Override
+    public int weigh(Long id, Object value) {
+        if (value instanceof byte[]) {
+            return ENTRY_OVERHEAD + align(16 + ((byte[]) value).length);
+        }
+        return ENTRY_OVERHEAD + weigh((Item) value);
+    }
+
+    private static int weigh(Item item) {
+        return ITEM_SHALLOW
+                + boxed(item.getId(), BOXED_LONG) + boxed(item.getPrice(), BOXED_LONG)
+                + boxed(item.getStatus(), BOXED_INTEGER) + boxed(item.getStock(), BOXED_INTEGER)
+                + boxed(item.getSold(), BOXED_INTEGER)
+                + boxed(item.getCreateTime(), DATE) + boxed(item.getUpdateTime(), DATE)
+                + weigh(item.getName()) + weigh(item.getTitle()) + weigh(item.getImage())
+                + weigh(item.getCategory()) + weigh(item.getBrand()) + weigh(item.getSpec());
+    }
+
+    // String对象24 + char[]（Java 8每个字符2字节）
+    private static int weigh(String value) {
+        return value == null ? 0 : 24 + align(16 + value.length() * 2);
+    }
+
+    private static int boxed(Object value, int size) {
+        return value == null ? 0 : size;
+    }
+
+    private static int align(int size) {
+        return (size + 7) & ~7;
+    }
+}
@@ -0,0 +1,455 @@
+package com.heima.item.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.heima.item.config.CacheProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 多级缓存：Caffeine(L1，进程内) -> Redis(L2，所有实例共享) -> 数据库。
+ * <p>
+ * Redis中的值为 {@code <过期时间戳>|<JSON>}，过期时间加少量随机抖动，避免同时过期；数据库中
+ * 不存在的id以空字符串缓存nullTtl，本实例再记住localNullTtl，重复查询不存在的id不出进程。
+ * Redis不可用时直接查数据库。
+ * <p>
+ * 防击穿：
+ * <ul>
+ *     <li>Redis未命中时，只有抢到 lock:cache:名称:id 的实例查数据库，其他实例等待它写回Redis</li>
+ *     <li>Redis中的值剩余寿命低于refreshAhead比例后，每次读取按概率提前在后台刷新，
+ *     热点key在过期前就被重新加载，不会在请求线程上集中失效</li>
+ * </ul>
+ * 每一级的命中/未命中计入 cache.tier.gets{cache, tier, result}，访问的id抽样记入HotKeyTracker。
+ * <p>
+ * compact为true时L1存放JSON序列化后的byte[]，每次读取反序列化出新对象；否则直接存放对象。
+ */
+@Slf4j
+public class MultiLevelCache<V> {
+
+    private static final String NULL_VALUE = "";
+
+    // tryLock的结果：锁被别人持有
+    private static final String LOCKED = null;
+
+    // tryLock的结果：Redis不可用，不加锁直接查库
+    private static final String NO_LOCK = "";
+
+    private static final RedisScript<Long> UNLOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    private static final long LOCK_POLL_INTERVAL = 20;
+
+    private final String name;
+
+    private final Class<V> type;
+
+    private final Cache<Long, Object> local;
+
+    private final boolean compact;
+
+    // 本实例记住的数据库中不存在的id
+    private final Cache<Long, Boolean> localNulls;
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final ObjectMapper mapper;
+
+    private final Duration ttl;
+
+    private final CacheProperties properties;
+
+    private final Executor refreshExecutor;
+
+    private final Set<Long> refreshing = ConcurrentHashMap.newKeySet();
+
+    private final HotKeyTracker hotKeys;
+
+    private final Counter l1Hit;
+    private final Counter l1Miss;
+    private final Counter l2Hit;
+    private final Counter l2Miss;
+    private final Counter dbHit;
+    private final Counter dbMiss;
+    private final Counter dbRefresh;
+
+    public MultiLevelCache(String name, Class<V> type, Cache<Long, Object> local, boolean compact,
+                           StringRedisTemplate redisTemplate, ObjectMapper mapper, MeterRegistry registry, Duration ttl,
+                           CacheProperties properties, Executor refreshExecutor) {
+        this.name = name;
+        this.type = type;
+        this.local = local;
+        this.compact = compact;
+        this.localNulls = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(properties.getLocalNullTtl(), TimeUnit.SECONDS)
+                .build();
+        this.redisTemplate = redisTemplate;
+        this.mapper = mapper;
+        this.ttl = ttl;
+        this.properties = properties;
+        this.refreshExecutor = refreshExecutor;
+        this.hotKeys = new HotKeyTracker(properties.getHotKeyCapacity(), properties.getHotKeySampleRate());
+        this.l1Hit = counter(registry, "l1", "hit");
+        this.l1Miss = counter(registry, "l1", "miss");
+        this.l2Hit = counter(registry, "l2", "hit");
+        this.l2Miss = counter(registry, "l2", "miss");
+        this.dbHit = counter(registry, "db", "hit");
+        this.dbMiss = counter(registry, "db", "miss");
+        this.dbRefresh = counter(registry, "db", "refresh");
+    }
+
+    private Counter counter(MeterRegistry registry, String tier, String result) {
+        return Counter.builder("cache.tier.gets")
+                .tag("cache", name)
+                .tag("tier", tier)
+                .tag("result", result)
+                .register(registry);
+    }
+
+    public V get(Long id, Function<Long, V> loader) {
+        hotKeys.record(id);
+        Object stored = local.getIfPresent(id);
+        if (stored != null || localNulls.getIfPresent(id) != null) {
+            l1Hit.increment();
+            return fromLocal(stored);
+        }
+        l1Miss.increment();
+        // Caffeine保证同一个key在本进程内只加载一次
+        V value = fromLocal(local.get(id, key -> toLocal(loadFromRemote(key, loader))));
+        if (value == null) {
+            localNulls.put(id, Boolean.TRUE);
+        }
+        return value;
+    }
+
+    public Map<Long, V> getAll(Collection<Long> ids, Function<Collection<Long>, Map<Long, V>> loader) {
+        List<Long> candidates = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            hotKeys.record(id);
+            if (localNulls.getIfPresent(id) == null) {
+                candidates.add(id);
+            }
+        }
+        int[] misses = {0};
+        Map<Long, Object> stored = local.getAll(candidates, missing -> {
+            List<Long> keys = new ArrayList<>();
+            missing.forEach(keys::add);
+            misses[0] = keys.size();
+            Map<Long, Object> loaded = new HashMap<>(keys.size() * 2);
+            loadAllFromRemote(keys, loader).forEach((id, value) -> loaded.put(id, toLocal(value)));
+            return loaded;
+        });
+        Map<Long, V> values = new HashMap<>(stored.size() * 2);
+        for (Long id : candidates) {
+            Object value = stored.get(id);
+            if (value != null) {
+                values.put(id, fromLocal(value));
+            } else {
+                localNulls.put(id, Boolean.TRUE);
+            }
+        }
+        l1Miss.increment(misses[0]);
+        l1Hit.increment(ids.size() - misses[0]);
+        return values;
+    }
+
+    public void put(Long id, V value) {
+        local.put(id, toLocal(value));
+        localNulls.invalidate(id);
+        writeRemote(id, value);
+    }
+
+    public void evict(Long id) {
+        evictLocal(id);
+        try {
+            redisTemplate.delete(key(id));
+        } catch (RuntimeException e) {
+            log.warn("删除Redis缓存失败, cache={}, id={}", name, id, e);
+        }
+    }
+
+    /**
+     * 只删除本实例的L1，收到其他实例的失效通知时调用
+     */
+    public void evictLocal(Long id) {
+        local.invalidate(id);
+        localNulls.invalidate(id);
+    }
+
+    public Cache<Long, Object> getLocal() {
+        return local;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public HotKeyTracker getHotKeys() {
+        return hotKeys;
+    }
+
+    private V loadFromRemote(Long id, Function<Long, V> loader) {
+        String cached = readRemote(id);
+        if (cached != null) {
+            l2Hit.increment();
+            maybeRefresh(id, cached, loader);
+            return decode(cached);
+        }
+        l2Miss.increment();
+
+        String token = tryLock(id);
+        if (token == LOCKED) {
+            // 其他实例正在加载，等它写回Redis
+            cached = awaitRemote(id);
+            if (cached != null) {
+                return decode(cached);
+            }
+        }
+        try {
+            V value = loader.apply(id);
+            (value != null ? dbHit : dbMiss).increment();
+            writeRemote(id, value);
+            return value;
+        } finally {
+            unlock(id, token);
+        }
+    }
+
+    private Map<Long, V> loadAllFromRemote(List<Long> ids, Function<Collection<Long>, Map<Long, V>> loader) {
+        Map<Long, V> values = new HashMap<>(ids.size() * 2);
+        List<Long> misses = new ArrayList<>();
+        List<String> cached = readRemote(ids);
+        for (int i = 0; i < ids.size(); i++) {
+            Long id = ids.get(i);
+            String value = cached == null ? null : cached.get(i);
+            if (value == null) {
+                misses.add(id);
+                continue;
+            }
+            maybeRefresh(id, value, key -> loader.apply(Collections.singletonList(key)).get(key));
+            V decoded = decode(value);
+            if (decoded != null) {
+                values.put(id, decoded);
+            }
+        }
+        l2Hit.increment(ids.size() - misses.size());
+        l2Miss.increment(misses.size());
+        if (misses.isEmpty()) {
+            return values;
+        }
+        // 批量加载只在单个实例内合并，不加分布式锁
+        Map<Long, V> loaded = loader.apply(misses);
+        dbHit.increment(loaded.size());
+        dbMiss.increment(misses.size() - loaded.size());
+        for (Long id : misses) {
+            writeRemote(id, loaded.get(id));
+        }
+        values.putAll(loaded);
+        return values;
+    }
+
+    /**
+     * 剩余寿命低于 ttl * refreshAhead 后，以 1 - 剩余/(ttl * refreshAhead) 的概率提前刷新
+     */
+    private void maybeRefresh(Long id, String cached, Function<Long, V> loader) {
+        double window = ttl.toMillis() * properties.getRefreshAhead();
+        if (window <= 0 || NULL_VALUE.equals(cached)) {
+            return;
+        }
+        long remaining = expiresAt(cached) - System.currentTimeMillis();
+        if (remaining >= window || ThreadLocalRandom.current().nextDouble() < remaining / window) {
+            return;
+        }
+        if (!refreshing.add(id)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    refresh(id, loader);
+                } finally {
+                    refreshing.remove(id);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshing.remove(id);
+        }
+    }
+
+    private void refresh(Long id, Function<Long, V> loader) {
+        String token = tryLock(id);
+        if (token == LOCKED) {
+            return;
+        }
+        try {
+            V value = loader.apply(id);
+            dbRefresh.increment();
+            writeRemote(id, value);
+            if (value != null) {
+                local.put(id, toLocal(value));
+            } else {
+                evictLocal(id);
+            }
+        } catch (RuntimeException e) {
+            log.warn("提前刷新缓存失败, cache={}, id={}", name, id, e);
+        } finally {
+            unlock(id, token);
+        }
+    }
+
+    private String tryLock(Long id) {
+        String token = UUID.randomUUID().toString();
+        try {
+            Boolean locked = redisTemplate.opsForValue()
+                    .setIfAbsent(lockKey(id), token, properties.getLockLease(), TimeUnit.MILLISECONDS);
+            return Boolean.TRUE.equals(locked) ? token : LOCKED;
+        } catch (RuntimeException e) {
+            log.warn("获取缓存加载锁失败, cache={}, id={}", name, id, e);
+            return NO_LOCK;
+        }
+    }
+
+    private void unlock(Long id, String token) {
+        if (token == LOCKED || NO_LOCK.equals(token)) {
+            return;
+        }
+        try {
+            redisTemplate.execute(UNLOCK_SCRIPT, Collections.singletonList(lockKey(id)), token);
+        } catch (RuntimeException e) {
+            // 锁到期自动释放
+            log.warn("释放缓存加载锁失败, cache={}, id={}", name, id, e);
+        }
+    }
+
+    private String awaitRemote(Long id) {
+        long deadline = System.currentTimeMillis() + properties.getLockWait();
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(LOCK_POLL_INTERVAL);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            String cached = readRemote(id);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        return null;
+    }
+
+    private String readRemote(Long id) {
+        try {
+            return redisTemplate.opsForValue().get(key(id));
+        } catch (RuntimeException e) {
+            log.warn("查询Redis缓存失败, cache={}, id={}", name, id, e);
+            return null;
+        }
+    }
+
+    private List<String> readRemote(List<Long> ids) {
+        List<String> keys = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            keys.add(key(id));
+        }
+        try {
+            return redisTemplate.opsForValue().multiGet(keys);
+        } catch (RuntimeException e) {
+            log.warn("批量查询Redis缓存失败, cache={}", name, e);
+            return null;
+        }
+    }
+
+    private void writeRemote(Long id, V value) {
+        try {
+            if (value == null) {
+                redisTemplate.opsForValue().set(key(id), NULL_VALUE, properties.getNullTtl(), TimeUnit.SECONDS);
+            } else {
+                long millis = ttl.toMillis();
+                millis += ThreadLocalRandom.current().nextLong(millis / 10 + 1);
+                String cached = (System.currentTimeMillis() + millis) + "|" + mapper.writeValueAsString(value);
+                redisTemplate.opsForValue().set(key(id), cached, millis, TimeUnit.MILLISECONDS);
+            }
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException(e);
+        } catch (RuntimeException e) {
+            log.warn("写入Redis缓存失败, cache={}, id={}", name, id, e);
+        }
+    }
+
+    private Object toLocal(V value) {
+        if (!compact || value == null) {
+            return value;
+        }
+        try {
+            return mapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private V fromLocal(Object stored) {
+        if (!(stored instanceof byte[])) {
+            return (V) stored;
+        }
+        try {
+            return mapper.readValue((byte[]) stored, type);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static long expiresAt(String cached) {
+        int separator = separator(cached);
+        return separator < 0 ? Long.MAX_VALUE : Long.parseLong(cached.substring(0, separator));
+    }
+
+    private V decode(String cached) {
+        if (NULL_VALUE.equals(cached)) {
+            return null;
+        }
+        try {
+            return mapper.readValue(cached.substring(separator(cached) + 1), type);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // 不带过期时间前缀的旧值直接是JSON，返回-1
+    private static int separator(String cached) {
+        return cached.charAt(0) == '{' ? -1 : cached.indexOf('|');
+    }
+
+    private String key(Long id) {
+        return "cache:" + name + ":" + id;
+    }
+
+    private String lockKey(Long id) {
+        return "lock:" + key(id);
+    }
+}
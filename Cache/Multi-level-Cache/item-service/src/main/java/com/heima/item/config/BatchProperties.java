@@ -0,0 +1,13 @@
+package com.heima.item.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "item.batch")
+public class BatchProperties {
+    // /item/batch一次最多查询的商品数量，超过返回400
+    private int maxIds = 100;
+}
@@ -0,0 +1,21 @@
+package com.heima.item.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "item.bloom")
+public class BloomProperties {
+    // 关闭后所有id都放行
+    private boolean enabled = true;
+    // 预计的商品数量，实际数量的2倍更大时按实际数量的2倍
+    private long expectedInsertions = 1_000_000;
+    // 误判率，误判的id照常查缓存和数据库
+    private double fpp = 0.01;
+    // 从tb_item重建的间隔，秒；丢失的删除通知最多影响这么久，新增的id不受影响
+    private long rebuildInterval = 600;
+    // 重建时每次查询的id数量
+    private int scanBatchSize = 5000;
+}
@@ -0,0 +1,35 @@
+package com.heima.item.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "item.cache")
+public class CacheProperties {
+    // 本地缓存过期时间，秒；错过失效通知时最多读到这么久的旧数据
+    private long localTtl = 600;
+    // 商品本地缓存按估算的字节数限制容量，0表示按条数（最多10000条）
+    private long localMaxBytes = 0;
+    // 商品本地缓存存放序列化后的byte[]，读取时反序列化；用CPU换内存，配合localMaxBytes能放下更多商品
+    private boolean localCompact = false;
+    // 商品在Redis中的过期时间，秒
+    private long itemTtl = 1800;
+    // 库存变化频繁，过期时间更短，秒
+    private long stockTtl = 60;
+    // 数据库中不存在的id在Redis中缓存空值的时间，秒
+    private long nullTtl = 60;
+    // 本实例记住数据库中不存在的id的时间，秒
+    private long localNullTtl = 10;
+    // Redis未命中时只有拿到锁的实例查数据库，锁的租期，毫秒
+    private long lockLease = 3000;
+    // 没拿到锁的实例等待Redis被填充的最长时间，毫秒，超时后自己查数据库
+    private long lockWait = 200;
+    // Redis中的值在剩余寿命低于这个比例后，按概率提前异步刷新，越接近过期概率越大；0关闭
+    private double refreshAhead = 0.2;
+    // 每个缓存跟踪的热点id数量
+    private int hotKeyCapacity = 200;
+    // 热点统计的抽样比例
+    private double hotKeySampleRate = 0.1;
+}
@@ -2,27 +2,47 @@ package com.heima.item.config;
 
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
-import com.heima.item.pojo.Item;
-import com.heima.item.pojo.ItemStock;
+import com.heima.item.cache.ItemWeigher;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.concurrent.TimeUnit;
+
 @Configuration
 public class CaffeineConfig {
 
+    /**
+     * 值是Item，或者localCompact时是序列化后的byte[]，由MultiLevelCache负责转换
+     */
     @Bean
-    public Cache<Long, Item> itemCache() {
-        return Caffeine.newBuilder()
+    public Cache<Long, Object> itemCache(CacheProperties properties, MeterRegistry registry) {
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
                 .initialCapacity(100)
-                .maximumSize(10_000)
-                .build();
+                .expireAfterWrite(properties.getLocalTtl(), TimeUnit.SECONDS)
+                .recordStats();
+        Cache<Long, Object> cache;
+        if (properties.getLocalMaxBytes() > 0) {
+            // 商品的spec、title长短差别很大，按条数限制时堆内存占用不可控
+            cache = builder.maximumWeight(properties.getLocalMaxBytes())
+                    .weigher(new ItemWeigher())
+                    .build();
+        } else {
+            cache = builder.maximumSize(10_000).build();
+        }
+        // 命中率、加载耗时、驱逐数：/actuator/metrics/cache.gets?tag=cache:itemCache
+        return CaffeineCacheMetrics.monitor(registry, cache, "itemCache");
     }
 
     @Bean
-    public Cache<Long, ItemStock> stockCache() {
-        return Caffeine.newBuilder()
+    public Cache<Long, Object> stockCache(StockProperties properties, MeterRegistry registry) {
+        Cache<Long, Object> cache = Caffeine.newBuilder()
                 .initialCapacity(100)
                 .maximumSize(10_000)
+                .expireAfterWrite(properties.getLocalTtl(), TimeUnit.SECONDS)
+                .recordStats()
                 .build();
+        return CaffeineCacheMetrics.monitor(registry, cache, "stockCache");
     }
 }
@@ -0,0 +1,71 @@
+package com.heima.item.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.heima.item.cache.CacheInvalidationBus;
+import com.heima.item.cache.ItemIdFilter;
+import com.heima.item.cache.MultiLevelCache;
+import com.heima.item.pojo.Item;
+import com.heima.item.pojo.ItemStock;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 在CaffeineConfig的本地缓存之后加一层Redis，并订阅缓存失效和商品id变更消息
+ */
+@Configuration
+public class MultiLevelCacheConfig {
+
+    @Bean
+    public MultiLevelCache<Item> itemMultiLevelCache(Cache<Long, Object> itemCache, StringRedisTemplate redisTemplate,
+                                                     ObjectMapper mapper, MeterRegistry registry,
+                                                     CacheProperties properties, Executor cacheRefreshExecutor) {
+        return new MultiLevelCache<>("item", Item.class, itemCache, properties.isLocalCompact(), redisTemplate, mapper,
+                registry, Duration.ofSeconds(properties.getItemTtl()), properties, cacheRefreshExecutor);
+    }
+
+    @Bean
+    public MultiLevelCache<ItemStock> stockMultiLevelCache(Cache<Long, Object> stockCache, StringRedisTemplate redisTemplate,
+                                                           ObjectMapper mapper, MeterRegistry registry,
+                                                           CacheProperties properties, Executor cacheRefreshExecutor) {
+        return new MultiLevelCache<>("stock", ItemStock.class, stockCache, false, redisTemplate, mapper,
+                registry, Duration.ofSeconds(properties.getStockTtl()), properties, cacheRefreshExecutor);
+    }
+
+    /**
+     * 提前刷新用的线程池，队列满了就放弃这次刷新，等下次读取再触发。
+     * 刷新会写L1，不能在调用线程上执行（调用线程可能正在加载同一个key）
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ThreadPoolExecutor cacheRefreshExecutor() {
+        AtomicInteger count = new AtomicInteger();
+        return new ThreadPoolExecutor(2, 2, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1000), r -> {
+            Thread thread = new Thread(r, "cache-refresh-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Bean
+    public RedisMessageListenerContainer cacheInvalidationContainer(RedisConnectionFactory connectionFactory,
+                                                                    CacheInvalidationBus invalidationBus,
+                                                                    ItemIdFilter itemIdFilter) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(invalidationBus, new ChannelTopic(CacheInvalidationBus.CHANNEL));
+        container.addMessageListener(itemIdFilter, new ChannelTopic(ItemIdFilter.CHANNEL));
+        return container;
+    }
+}
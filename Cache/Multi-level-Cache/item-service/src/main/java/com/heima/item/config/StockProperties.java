@@ -0,0 +1,21 @@
+package com.heima.item.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "item.stock")
+public class StockProperties {
+    // 把Redis计数器中变化过的库存写回tb_item_stock的间隔，毫秒
+    private long flushInterval = 1000;
+    // 每次最多写回的商品数量
+    private int flushBatchSize = 500;
+    // 写回锁的租期，毫秒；每写回一批续期一次，要大于写回一批的耗时
+    private long flushLease = 30000;
+    // 计数器不存在的商品最多重试写回几个周期，之后放弃，下次扣减时重新从数据库加载
+    private int missingRetries = 3;
+    // 本地stockCache的过期时间，秒；库存变化频繁，比商品短得多
+    private long localTtl = 10;
+}
@@ -0,0 +1,28 @@
+package com.heima.item.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "item.warmup")
+public class WarmupProperties {
+    // 启动时是否预热itemCache和stockCache
+    private boolean enabled = true;
+    // 预热哪些商品：ID_RANGE 从minId开始的id，HOT_LIST 配置的hotIds，SOLD_RANK 销量最高的商品
+    private Strategy strategy = Strategy.SOLD_RANK;
+    // 最多预热的商品数量
+    private int size = 1000;
+    // 每批查询的id数量
+    private int batchSize = 200;
+    private long minId = 0;
+    private List<Long> hotIds = new ArrayList<>();
+
+    public enum Strategy {
+        ID_RANGE, HOT_LIST, SOLD_RANK
+    }
+}
@@ -3,6 +3,12 @@ package com.heima.item.service;
 import com.baomidou.mybatisplus.extension.service.IService;
 import com.heima.item.pojo.Item;
 
+import java.util.Collection;
+import java.util.Map;
+
 public interface IItemService extends IService<Item> {
     void saveItem(Item item);
+
+    // 批量查询未删除的商品，key为商品id
+    Map<Long, Item> mapByIds(Collection<Long> ids);
 }
@@ -3,5 +3,14 @@ package com.heima.item.service;
 import com.baomidou.mybatisplus.extension.service.IService;
 import com.heima.item.pojo.ItemStock;
 
+import java.util.Collection;
+import java.util.Map;
+
 public interface IItemStockService extends IService<ItemStock> {
+
+    // 批量查询库存，key为商品id
+    Map<Long, ItemStock> mapByIds(Collection<Long> ids);
+
+    // 扣减库存，库存不足或商品不存在返回false
+    boolean deduct(Long id, int num);
 }
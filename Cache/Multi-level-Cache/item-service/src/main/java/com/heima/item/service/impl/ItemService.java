@@ -10,6 +10,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
 @Service
 public class ItemService extends ServiceImpl<ItemMapper, Item> implements IItemService {
     @Autowired
@@ -25,4 +30,13 @@ public class ItemService extends ServiceImpl<ItemMapper, Item> implements IItemS
         stock.setStock(item.getStock());
         stockService.save(stock);
     }
+
+    @Override
+    public Map<Long, Item> mapByIds(Collection<Long> ids) {
+        return query()
+                .ne("status", 3).in("id", ids)
+                .list()
+                .stream()
+                .collect(Collectors.toMap(Item::getId, Function.identity()));
+    }
 }
@@ -4,8 +4,42 @@ import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.heima.item.service.IItemStockService;
 import com.heima.item.mapper.ItemStockMapper;
 import com.heima.item.pojo.ItemStock;
+import com.heima.item.stock.StockCounter;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
 @Service
 public class ItemStockService extends ServiceImpl<ItemStockMapper, ItemStock> implements IItemStockService {
+
+    @Autowired
+    private StockCounter stockCounter;
+
+    @Override
+    public Map<Long, ItemStock> mapByIds(Collection<Long> ids) {
+        return listByIds(ids).stream()
+                .collect(Collectors.toMap(ItemStock::getId, Function.identity()));
+    }
+
+    @Override
+    public boolean deduct(Long id, int num) {
+        if (num < 1) {
+            throw new IllegalArgumentException("扣减数量必须大于0: " + num);
+        }
+        // 在Redis计数器上扣减，由StockFlusher写回数据库，不竞争行锁
+        long left = stockCounter.deduct(id, num);
+        if (left == StockCounter.NOT_LOADED) {
+            ItemStock stock = getById(id);
+            if (stock == null) {
+                return false;
+            }
+            stockCounter.init(stock);
+            left = stockCounter.deduct(id, num);
+        }
+        return left >= 0;
+    }
 }
@@ -0,0 +1,217 @@
+package com.heima.item.stock;
+
+import com.heima.item.pojo.ItemStock;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 热点库存计数器：每个商品一个Redis hash(stock:counter:id，字段stock和sold)。
+ * <p>
+ * 扣减在Lua脚本中原子完成，并把商品id放入stock:dirty，由StockFlusher批量写回数据库。
+ * 计数器一旦建立就是库存的准确值，数据库落后至多一个写回周期。
+ */
+@Slf4j
+@Component
+public class StockCounter {
+
+    // deduct的结果：计数器还没有从数据库加载
+    public static final long NOT_LOADED = -2;
+
+    // deduct的结果：库存不足
+    public static final long INSUFFICIENT = -1;
+
+    // deduct的结果：扣减数量不是正整数
+    public static final long INVALID = -3;
+
+    static final String DIRTY_KEY = "stock:dirty";
+
+    static final String FLUSH_LOCK_KEY = "lock:stock:flush";
+
+    private static final List<String> FIELDS = Arrays.asList("stock", "sold");
+
+    private static final RedisScript<Long> DEDUCT_SCRIPT = new DefaultRedisScript<>(
+            "local num = tonumber(ARGV[1])\n" +
+            "if not num or num < 1 or num % 1 ~= 0 then return -3 end\n" +
+            "local stock = redis.call('hget', KEYS[1], 'stock')\n" +
+            "if not stock then return -2 end\n" +
+            "if tonumber(stock) < num then return -1 end\n" +
+            "redis.call('hincrby', KEYS[1], 'sold', num)\n" +
+            "local left = redis.call('hincrby', KEYS[1], 'stock', -num)\n" +
+            "redis.call('sadd', KEYS[2], ARGV[2])\n" +
+            "return left",
+            Long.class);
+
+    private static final RedisScript<Long> INIT_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('exists', KEYS[1]) == 1 then return 0 end\n" +
+            "redis.call('hmset', KEYS[1], 'stock', ARGV[1], 'sold', ARGV[2])\n" +
+            "return 1",
+            Long.class);
+
+    // 只覆盖已经存在的计数器，字段为空串的不修改；覆盖后标记为脏，
+    // 即使覆盖前的旧值刚被写回数据库，下个周期也会用新值再写一次
+    private static final RedisScript<Long> OVERWRITE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('exists', KEYS[1]) == 0 then return 0 end\n" +
+            "if ARGV[1] ~= '' then redis.call('hset', KEYS[1], 'stock', ARGV[1]) end\n" +
+            "if ARGV[2] ~= '' then redis.call('hset', KEYS[1], 'sold', ARGV[2]) end\n" +
+            "redis.call('sadd', KEYS[2], ARGV[3])\n" +
+            "return 1",
+            Long.class);
+
+    private static final RedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('pexpire', KEYS[1], ARGV[2]) else return 0 end",
+            Long.class);
+
+    private static final RedisScript<Long> UNLOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    /**
+     * @return 扣减后的库存，或 NOT_LOADED / INSUFFICIENT / INVALID
+     */
+    public long deduct(Long id, int num) {
+        Long left = redisTemplate.execute(DEDUCT_SCRIPT, Arrays.asList(key(id), DIRTY_KEY),
+                String.valueOf(num), id.toString());
+        return left == null ? NOT_LOADED : left;
+    }
+
+    /**
+     * 用数据库中的库存建立计数器，已经存在则不变
+     */
+    public void init(ItemStock stock) {
+        redisTemplate.execute(INIT_SCRIPT, Collections.singletonList(key(stock.getId())),
+                String.valueOf(stock.getStock()), String.valueOf(stock.getSold() == null ? 0 : stock.getSold()));
+    }
+
+    /**
+     * 后台直接修改了库存时，同步到已有的计数器，避免写回时被旧值覆盖
+     */
+    public void overwrite(ItemStock stock) {
+        redisTemplate.execute(OVERWRITE_SCRIPT, Arrays.asList(key(stock.getId()), DIRTY_KEY),
+                stock.getStock() == null ? "" : stock.getStock().toString(),
+                stock.getSold() == null ? "" : stock.getSold().toString(),
+                stock.getId().toString());
+    }
+
+    /**
+     * @return 计数器中的库存，没有计数器返回null
+     */
+    public ItemStock get(Long id) {
+        try {
+            List<Object> values = redisTemplate.opsForHash().multiGet(key(id), new ArrayList<>(FIELDS));
+            return toStock(id, values);
+        } catch (RuntimeException e) {
+            // 读库存时Redis不可用就退回到缓存
+            log.warn("查询库存计数器失败, id={}", id, e);
+            return null;
+        }
+    }
+
+    /**
+     * 一次往返读取多个商品的计数器，没有计数器的商品不在结果中；Redis不可用时返回空列表
+     */
+    public List<ItemStock> getAll(List<Long> ids) {
+        try {
+            return readAll(ids);
+        } catch (RuntimeException e) {
+            log.warn("批量查询库存计数器失败", e);
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * 同getAll，但Redis不可用时抛出异常，写回时用，不能把读取失败当成没有计数器
+     */
+    @SuppressWarnings("unchecked")
+    public List<ItemStock> readAll(List<Long> ids) {
+        List<Object> results = redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            public Object execute(RedisOperations operations) throws DataAccessException {
+                for (Long id : ids) {
+                    operations.opsForHash().multiGet(key(id), new ArrayList<>(FIELDS));
+                }
+                return null;
+            }
+        });
+        List<ItemStock> stocks = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            ItemStock stock = toStock(ids.get(i), (List<Object>) results.get(i));
+            if (stock != null) {
+                stocks.add(stock);
+            }
+        }
+        return stocks;
+    }
+
+    public List<Long> popDirty(int count) {
+        List<String> ids = redisTemplate.opsForSet().pop(DIRTY_KEY, count);
+        List<Long> result = new ArrayList<>();
+        if (ids != null) {
+            for (String id : ids) {
+                result.add(Long.valueOf(id));
+            }
+        }
+        return result;
+    }
+
+    public void markDirty(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        String[] members = ids.stream().map(String::valueOf).toArray(String[]::new);
+        redisTemplate.opsForSet().add(DIRTY_KEY, members);
+    }
+
+    /**
+     * 写回锁，同一时间只有一个实例写回，写回的顺序才和计数器变化的顺序一致
+     */
+    public boolean lockFlush(String token, long leaseMillis) {
+        Boolean locked = redisTemplate.opsForValue()
+                .setIfAbsent(FLUSH_LOCK_KEY, token, leaseMillis, TimeUnit.MILLISECONDS);
+        return Boolean.TRUE.equals(locked);
+    }
+
+    /**
+     * @return 锁还属于token并且已续期
+     */
+    public boolean renewFlushLock(String token, long leaseMillis) {
+        Long renewed = redisTemplate.execute(RENEW_SCRIPT, Collections.singletonList(FLUSH_LOCK_KEY),
+                token, String.valueOf(leaseMillis));
+        return renewed != null && renewed == 1;
+    }
+
+    public void unlockFlush(String token) {
+        redisTemplate.execute(UNLOCK_SCRIPT, Collections.singletonList(FLUSH_LOCK_KEY), token);
+    }
+
+    private static ItemStock toStock(Long id, List<Object> values) {
+        if (values == null || values.get(0) == null) {
+            return null;
+        }
+        ItemStock stock = new ItemStock();
+        stock.setId(id);
+        stock.setStock(Integer.valueOf((String) values.get(0)));
+        stock.setSold(values.get(1) == null ? 0 : Integer.valueOf((String) values.get(1)));
+        return stock;
+    }
+
+    private static String key(Long id) {
+        return "stock:counter:" + id;
+    }
+}
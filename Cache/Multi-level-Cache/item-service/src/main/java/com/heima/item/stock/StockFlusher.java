@@ -0,0 +1,144 @@
+package com.heima.item.stock;
+
+import com.heima.item.config.StockProperties;
+import com.heima.item.pojo.ItemStock;
+import com.heima.item.service.IItemStockService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 库存写回（write-behind）：定期取出变化过的商品，把计数器的当前值批量写回tb_item_stock。
+ * 写的是绝对值，重复写回无害；读取计数器或写回失败的商品重新标记，下个周期再写。
+ * <p>
+ * 每个实例都有写回任务，用Redis锁保证同一时间只有一个实例在写回，
+ * 否则一个实例较慢的批次可能用旧值覆盖另一个实例刚写回的新值。
+ * 计数器不存在的商品重试missingRetries个周期后放弃，数据库保留最后一次写回的值。
+ */
+@Slf4j
+@Component
+public class StockFlusher {
+
+    @Autowired
+    private StockCounter stockCounter;
+
+    @Autowired
+    private IItemStockService stockService;
+
+    @Autowired
+    private StockProperties properties;
+
+    // 商品id -> 连续读不到计数器的周期数，只在持有写回锁时修改
+    private final Map<Long, Integer> missingAttempts = new HashMap<>();
+
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "stock-flusher"));
+        long interval = properties.getFlushInterval();
+        scheduler.scheduleWithFixedDelay(this::flushSafely, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        scheduler.shutdown();
+        // 等正在执行的写回结束，再做最后一次
+        if (!scheduler.awaitTermination(properties.getFlushLease(), TimeUnit.MILLISECONDS)) {
+            log.warn("库存写回任务未能按时结束");
+        }
+        flushSafely();
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("库存写回失败", e);
+        }
+    }
+
+    public void flush() {
+        String token = UUID.randomUUID().toString();
+        long lease = properties.getFlushLease();
+        if (!stockCounter.lockFlush(token, lease)) {
+            // 其他实例正在写回
+            return;
+        }
+        synchronized (missingAttempts) {
+            try {
+                flushLocked(token, lease);
+            } finally {
+                stockCounter.unlockFlush(token);
+            }
+        }
+    }
+
+    private void flushLocked(String token, long lease) {
+        int batchSize = properties.getFlushBatchSize();
+        // 读不到计数器的商品，本周期结束后再处理，避免在同一个周期里反复取出
+        Set<Long> missing = new HashSet<>();
+        try {
+            List<Long> ids;
+            do {
+                ids = stockCounter.popDirty(batchSize);
+                if (ids.isEmpty()) {
+                    return;
+                }
+                try {
+                    List<ItemStock> stocks = stockCounter.readAll(ids);
+                    if (!stocks.isEmpty()) {
+                        stockService.updateBatchById(stocks, batchSize);
+                    }
+                    missing.addAll(ids);
+                    for (ItemStock stock : stocks) {
+                        missing.remove(stock.getId());
+                        missingAttempts.remove(stock.getId());
+                    }
+                } catch (RuntimeException e) {
+                    stockCounter.markDirty(ids);
+                    throw e;
+                }
+                // 续期失败说明锁已过期，可能有别的实例在写回，剩下的留给下个周期
+            } while (ids.size() == batchSize && stockCounter.renewFlushLock(token, lease));
+        } finally {
+            retryMissing(missing);
+        }
+    }
+
+    private void retryMissing(Set<Long> missing) {
+        if (missing.isEmpty()) {
+            return;
+        }
+        List<Long> retry = new ArrayList<>();
+        List<Long> dropped = new ArrayList<>();
+        for (Long id : missing) {
+            if (missingAttempts.merge(id, 1, Integer::sum) >= properties.getMissingRetries()) {
+                missingAttempts.remove(id);
+                dropped.add(id);
+            } else {
+                retry.add(id);
+            }
+        }
+        if (!retry.isEmpty()) {
+            log.warn("库存计数器不存在, 下个周期重试, ids={}", retry);
+            stockCounter.markDirty(retry);
+        }
+        if (!dropped.isEmpty()) {
+            log.error("库存计数器不存在, 放弃写回, ids={}", dropped);
+        }
+    }
+}
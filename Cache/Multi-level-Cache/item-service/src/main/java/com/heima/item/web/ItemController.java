@@ -1,16 +1,26 @@
 package com.heima.item.web;
 
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
-import com.github.benmanes.caffeine.cache.Cache;
+import com.heima.item.cache.CacheInvalidationBus;
+import com.heima.item.cache.ItemIdFilter;
+import com.heima.item.cache.MultiLevelCache;
+import com.heima.item.config.BatchProperties;
 import com.heima.item.pojo.Item;
 import com.heima.item.pojo.ItemStock;
 import com.heima.item.pojo.PageDTO;
 import com.heima.item.service.IItemService;
 import com.heima.item.service.IItemStockService;
+import com.heima.item.stock.StockCounter;
+import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @RestController
@@ -23,10 +33,22 @@ public class ItemController {
     private IItemStockService stockService;
 
     @Autowired
-    private Cache<Long, Item> itemCache;
+    private MultiLevelCache<Item> itemCache;
 
     @Autowired
-    private Cache<Long, ItemStock> stockCache;
+    private MultiLevelCache<ItemStock> stockCache;
+
+    @Autowired
+    private CacheInvalidationBus invalidationBus;
+
+    @Autowired
+    private StockCounter stockCounter;
+
+    @Autowired
+    private ItemIdFilter itemIdFilter;
+
+    @Autowired
+    private BatchProperties batchProperties;
 
 
     @GetMapping("list")
@@ -38,12 +60,21 @@ public class ItemController {
                 .ne("status", 3)
                 .page(new Page<>(page, size));
 
-        // 查询库存
-        List<Item> list = result.getRecords().stream().peek(item -> {
-            ItemStock stock = stockService.getById(item.getId());
-            item.setStock(stock.getStock());
-            item.setSold(stock.getSold());
-        }).collect(Collectors.toList());
+        // 查询库存，先查stockCache(本地+Redis)，未命中的一次listByIds查询并放入缓存
+        List<Item> list = result.getRecords();
+        List<Long> ids = list.stream().map(Item::getId).collect(Collectors.toList());
+        Map<Long, ItemStock> stocks = new HashMap<>(stockCache.getAll(ids, stockService::mapByIds));
+        // 有热点库存计数器的以计数器为准
+        for (ItemStock stock : stockCounter.getAll(ids)) {
+            stocks.put(stock.getId(), stock);
+        }
+        for (Item item : list) {
+            ItemStock stock = stocks.get(item.getId());
+            if (stock != null) {
+                item.setStock(stock.getStock());
+                item.setSold(stock.getSold());
+            }
+        }
 
         // 封装返回
         return new PageDTO(result.getTotal(), list);
@@ -52,25 +83,92 @@ public class ItemController {
     @PostMapping
     public void saveItem(@RequestBody Item item){
         itemService.saveItem(item);
+        itemIdFilter.add(item.getId());
+        // 之前可能缓存过这个id的空值
+        invalidationBus.invalidate(itemCache, item.getId());
+        invalidationBus.invalidate(stockCache, item.getId());
     }
 
     @PutMapping
     public void updateItem(@RequestBody Item item) {
         itemService.updateById(item);
+        // 修改状态可能删除或恢复商品
+        if (item.getStatus() != null) {
+            if (item.getStatus() == 3) {
+                itemIdFilter.remove(item.getId());
+            } else {
+                itemIdFilter.add(item.getId());
+            }
+        }
+        invalidationBus.invalidate(itemCache, item.getId());
     }
 
     @PutMapping("stock")
     public void updateStock(@RequestBody ItemStock itemStock){
         stockService.updateById(itemStock);
+        stockCounter.overwrite(itemStock);
+        invalidationBus.invalidate(stockCache, itemStock.getId());
+    }
+
+    @PutMapping("stock/deduct/{id}")
+    public boolean deductStock(@PathVariable("id") Long id,
+                               @RequestParam(value = "num", defaultValue = "1") Integer num){
+        if (num < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "num必须大于0");
+        }
+        if (!itemIdFilter.mightExist(id)) {
+            return false;
+        }
+        return stockService.deduct(id, num);
     }
 
     @DeleteMapping("/{id}")
     public void deleteById(@PathVariable("id") Long id){
         itemService.update().set("status", 3).eq("id", id).update();
+        itemIdFilter.remove(id);
+        invalidationBus.invalidate(itemCache, id);
+    }
+
+    @GetMapping("batch")
+    public List<Item> queryItemBatch(@RequestParam("ids") List<Long> ids){
+        if (ids.size() > batchProperties.getMaxIds()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "ids最多" + batchProperties.getMaxIds() + "个");
+        }
+        // 去重，保持请求中的顺序，去掉一定不存在的id
+        List<Long> keys = ids.stream().distinct().filter(itemIdFilter::mightExist).collect(Collectors.toList());
+        // 未命中的商品、库存各一次listByIds
+        Map<Long, Item> items = itemCache.getAll(keys, itemService::mapByIds);
+        List<Long> found = new ArrayList<>(items.keySet());
+        Map<Long, ItemStock> stocks = new HashMap<>(stockCache.getAll(found, stockService::mapByIds));
+        // 有热点库存计数器的以计数器为准
+        for (ItemStock stock : stockCounter.getAll(found)) {
+            stocks.put(stock.getId(), stock);
+        }
+        List<Item> list = new ArrayList<>(items.size());
+        for (Long id : keys) {
+            Item cached = items.get(id);
+            if (cached == null) {
+                continue;
+            }
+            // 缓存里的对象是共享的，复制后再填库存
+            Item item = new Item();
+            BeanUtils.copyProperties(cached, item);
+            ItemStock stock = stocks.get(id);
+            if (stock != null) {
+                item.setStock(stock.getStock());
+                item.setSold(stock.getSold());
+            }
+            list.add(item);
+        }
+        return list;
     }
 
     @GetMapping("/{id}")
     public Item findById(@PathVariable("id") Long id){
+        // 一定不存在的id不查缓存和数据库
+        if (!itemIdFilter.mightExist(id)) {
+            return null;
+        }
         return itemCache.get(id, key -> itemService.query()
                 .ne("status", 3).eq("id", key)
                 .one());
@@ -78,6 +176,13 @@ public class ItemController {
 
     @GetMapping("/stock/{id}")
     public ItemStock findStockById(@PathVariable("id") Long id){
+        if (!itemIdFilter.mightExist(id)) {
+            return null;
+        }
+        ItemStock stock = stockCounter.get(id);
+        if (stock != null) {
+            return stock;
+        }
         return stockCache.get(id, key -> stockService.getById(key));
     }
 }
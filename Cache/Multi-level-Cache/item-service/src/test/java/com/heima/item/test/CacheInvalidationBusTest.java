@@ -0,0 +1,54 @@
+package com.heima.item.test;
+
+import com.heima.item.cache.CacheInvalidationBus;
+import com.heima.item.cache.MultiLevelCache;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.mockito.Mockito.*;
+
+public class CacheInvalidationBusTest {
+
+    @Test
+    void testInvalidateEvictsAndBroadcasts() {
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        MultiLevelCache<?> itemCache = cache("item");
+        CacheInvalidationBus bus = bus(redisTemplate, itemCache);
+
+        bus.invalidate(itemCache, 10001L);
+
+        verify(itemCache).evict(10001L);
+        verify(redisTemplate).convertAndSend(CacheInvalidationBus.CHANNEL, "item:10001");
+    }
+
+    @Test
+    void testMessageEvictsLocalEntryOfNamedCache() {
+        MultiLevelCache<?> itemCache = cache("item");
+        MultiLevelCache<?> stockCache = cache("stock");
+        CacheInvalidationBus bus = bus(mock(StringRedisTemplate.class), itemCache, stockCache);
+
+        bus.onMessage(new DefaultMessage(CacheInvalidationBus.CHANNEL.getBytes(StandardCharsets.UTF_8),
+                "stock:10001".getBytes(StandardCharsets.UTF_8)), null);
+
+        verify(stockCache).evictLocal(10001L);
+        verify(itemCache, never()).evictLocal(anyLong());
+    }
+
+    private static MultiLevelCache<?> cache(String name) {
+        MultiLevelCache<?> cache = mock(MultiLevelCache.class);
+        when(cache.getName()).thenReturn(name);
+        return cache;
+    }
+
+    private static CacheInvalidationBus bus(StringRedisTemplate redisTemplate, MultiLevelCache<?>... caches) {
+        CacheInvalidationBus bus = new CacheInvalidationBus();
+        ReflectionTestUtils.setField(bus, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(bus, "caches", Arrays.asList(caches));
+        return bus;
+    }
+}
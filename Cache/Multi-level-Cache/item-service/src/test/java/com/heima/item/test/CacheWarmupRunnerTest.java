@@ -0,0 +1,130 @@
+package com.heima.item.test;
+
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
+import com.heima.item.cache.CacheWarmupRunner;
+import com.heima.item.cache.MultiLevelCache;
+import com.heima.item.config.WarmupProperties;
+import com.heima.item.mapper.ItemMapper;
+import com.heima.item.mapper.ItemStockMapper;
+import com.heima.item.pojo.Item;
+import com.heima.item.pojo.ItemStock;
+import com.heima.item.service.impl.ItemService;
+import com.heima.item.service.impl.ItemStockService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class CacheWarmupRunnerTest {
+
+    private ItemMapper itemMapper;
+
+    private ItemStockMapper stockMapper;
+
+    private MultiLevelCache<Item> itemCache;
+
+    private MultiLevelCache<ItemStock> stockCache;
+
+    private WarmupProperties properties;
+
+    private CacheWarmupRunner runner;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        itemMapper = mock(ItemMapper.class);
+        stockMapper = mock(ItemStockMapper.class);
+        ItemService itemService = new ItemService();
+        ReflectionTestUtils.setField(itemService, "baseMapper", itemMapper);
+        ItemStockService stockService = new ItemStockService();
+        ReflectionTestUtils.setField(stockService, "baseMapper", stockMapper);
+        itemCache = mock(MultiLevelCache.class);
+        stockCache = mock(MultiLevelCache.class);
+        properties = new WarmupProperties();
+        properties.setSize(3);
+        properties.setBatchSize(2);
+
+        runner = new CacheWarmupRunner();
+        ReflectionTestUtils.setField(runner, "properties", properties);
+        ReflectionTestUtils.setField(runner, "itemService", itemService);
+        ReflectionTestUtils.setField(runner, "stockService", stockService);
+        ReflectionTestUtils.setField(runner, "itemCache", itemCache);
+        ReflectionTestUtils.setField(runner, "stockCache", stockCache);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testSoldRankWarmsTopSellers() {
+        properties.setStrategy(WarmupProperties.Strategy.SOLD_RANK);
+        when(stockMapper.selectList(any())).thenReturn(Arrays.asList(stock(7L), stock(3L), stock(5L)));
+
+        runner.run(null);
+
+        ArgumentCaptor<Wrapper<ItemStock>> wrapper = ArgumentCaptor.forClass(Wrapper.class);
+        verify(stockMapper).selectList(wrapper.capture());
+        // 不起别名的话item_id映射不到ItemStock.id
+        assertEquals("item_id AS id", wrapper.getValue().getSqlSelect());
+        assertEquals(Arrays.asList(7L, 3L, 5L), warmedIds());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testIdRangeWarmsFromMinId() {
+        properties.setStrategy(WarmupProperties.Strategy.ID_RANGE);
+        properties.setMinId(100);
+        when(itemMapper.selectList(any())).thenReturn(Arrays.asList(item(100L), item(101L), item(103L)));
+
+        runner.run(null);
+
+        ArgumentCaptor<Wrapper<Item>> wrapper = ArgumentCaptor.forClass(Wrapper.class);
+        verify(itemMapper).selectList(wrapper.capture());
+        assertEquals("id", wrapper.getValue().getSqlSelect());
+        assertEquals(Arrays.asList(100L, 101L, 103L), warmedIds());
+    }
+
+    @Test
+    void testHotListWarmsConfiguredIds() {
+        properties.setStrategy(WarmupProperties.Strategy.HOT_LIST);
+        properties.setHotIds(Arrays.asList(9L, 8L, 7L, 6L));
+
+        runner.run(null);
+
+        verifyNoInteractions(itemMapper, stockMapper);
+        assertEquals(Arrays.asList(9L, 8L, 7L), warmedIds());
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Long> warmedIds() {
+        ArgumentCaptor<Collection<Long>> items = ArgumentCaptor.forClass(Collection.class);
+        verify(itemCache, times(2)).getAll(items.capture(), any());
+        ArgumentCaptor<Collection<Long>> stocks = ArgumentCaptor.forClass(Collection.class);
+        verify(stockCache, times(2)).getAll(stocks.capture(), any());
+        List<Long> ids = new ArrayList<>();
+        items.getAllValues().forEach(ids::addAll);
+        List<Long> stockIds = new ArrayList<>();
+        stocks.getAllValues().forEach(stockIds::addAll);
+        assertEquals(ids, stockIds);
+        return ids;
+    }
+
+    private static ItemStock stock(Long id) {
+        ItemStock stock = new ItemStock();
+        stock.setId(id);
+        return stock;
+    }
+
+    private static Item item(Long id) {
+        Item item = new Item();
+        item.setId(id);
+        return item;
+    }
+}
@@ -0,0 +1,31 @@
+package com.heima.item.test;
+
+import com.heima.item.cache.HotKeyTracker;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HotKeyTrackerTest {
+
+    @Test
+    void testHeavyHittersSurviveLongTail() {
+        HotKeyTracker tracker = new HotKeyTracker(10, 1);
+        for (long i = 0; i < 10_000; i++) {
+            // 1和2各占1/4，其余是只出现一次的长尾
+            tracker.record(i % 4 == 0 ? 1L : i % 4 == 1 ? 2L : 1000 + i);
+        }
+
+        List<HotKeyTracker.HotKey> top = tracker.top(2);
+
+        assertEquals(2, top.size());
+        assertTrue(top.stream().anyMatch(hotKey -> hotKey.getId() == 1L));
+        assertTrue(top.stream().anyMatch(hotKey -> hotKey.getId() == 2L));
+        for (HotKeyTracker.HotKey hotKey : top) {
+            assertTrue(hotKey.getCount() - hotKey.getError() <= 2500);
+            assertTrue(hotKey.getCount() >= 2500);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.heima.item.test;
+
+import com.heima.item.cache.ItemIdFilter;
+import com.heima.item.config.BloomProperties;
+import com.heima.item.mapper.ItemMapper;
+import com.heima.item.pojo.Item;
+import com.heima.item.service.impl.ItemService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class ItemIdFilterTest {
+
+    private ItemMapper itemMapper;
+
+    private ItemIdFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        itemMapper = mock(ItemMapper.class);
+        ItemService itemService = new ItemService();
+        ReflectionTestUtils.setField(itemService, "baseMapper", itemMapper);
+        BloomProperties properties = new BloomProperties();
+        properties.setExpectedInsertions(1000);
+        properties.setScanBatchSize(10);
+
+        filter = new ItemIdFilter();
+        ReflectionTestUtils.setField(filter, "itemService", itemService);
+        ReflectionTestUtils.setField(filter, "properties", properties);
+    }
+
+    @Test
+    void testIdsAboveTheBuildAreLetThrough() {
+        when(itemMapper.selectOne(any())).thenReturn(item(10L));
+        when(itemMapper.selectList(any())).thenReturn(Arrays.asList(item(1L), item(2L), item(10L)));
+
+        filter.rebuild();
+
+        assertTrue(filter.mightExist(2L));
+        assertFalse(filter.mightExist(5L));
+        // created after the build, possibly on another instance whose message was lost
+        assertTrue(filter.mightExist(11L));
+    }
+
+    @Test
+    void testRemovedIdIsRejected() {
+        when(itemMapper.selectOne(any())).thenReturn(item(10L));
+        when(itemMapper.selectList(any())).thenReturn(Collections.singletonList(item(10L)));
+        filter.rebuild();
+
+        filter.onMessage(new DefaultMessage(ItemIdFilter.CHANNEL.getBytes(StandardCharsets.UTF_8),
+                "-10".getBytes(StandardCharsets.UTF_8)), null);
+        filter.onMessage(new DefaultMessage(ItemIdFilter.CHANNEL.getBytes(StandardCharsets.UTF_8),
+                "-12".getBytes(StandardCharsets.UTF_8)), null);
+
+        assertFalse(filter.mightExist(10L));
+        assertFalse(filter.mightExist(12L));
+    }
+
+    private static Item item(Long id) {
+        Item item = new Item();
+        item.setId(id);
+        return item;
+    }
+}
@@ -0,0 +1,149 @@
+package com.heima.item.test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.heima.item.cache.MultiLevelCache;
+import com.heima.item.config.CacheProperties;
+import com.heima.item.pojo.ItemStock;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class MultiLevelCacheTest {
+
+    private static final String STOCK_JSON = "{\"id\":1,\"stock\":99,\"sold\":5}";
+
+    private ValueOperations<String, String> valueOperations;
+
+    private MeterRegistry registry;
+
+    private MultiLevelCache<ItemStock> cache;
+
+    private final List<Runnable> refreshTasks = new ArrayList<>();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        valueOperations = mock(ValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.setIfAbsent(startsWith("lock:"), anyString(), anyLong(), any())).thenReturn(true);
+        registry = new SimpleMeterRegistry();
+        CacheProperties properties = new CacheProperties();
+        properties.setNullTtl(10);
+        cache = new MultiLevelCache<>("stock", ItemStock.class, Caffeine.newBuilder().<Long, Object>build(), false,
+                redisTemplate, new ObjectMapper(), registry, Duration.ofSeconds(60), properties, refreshTasks::add);
+    }
+
+    @Test
+    void testRedisHitSkipsDatabase() {
+        long expiresAt = System.currentTimeMillis() + 60_000;
+        when(valueOperations.get("cache:stock:1")).thenReturn(expiresAt + "|" + STOCK_JSON);
+
+        ItemStock stock = cache.get(1L, id -> fail("database should not be queried"));
+        ItemStock again = cache.get(1L, id -> fail("database should not be queried"));
+
+        assertEquals(99, stock.getStock());
+        assertSame(stock, again);
+        assertEquals(1, count("l1", "hit"));
+        assertEquals(1, count("l2", "hit"));
+    }
+
+    @Test
+    void testMissingIdIsCachedAsNull() {
+        AtomicInteger loads = new AtomicInteger();
+
+        assertNull(cache.get(2L, id -> {
+            loads.incrementAndGet();
+            return null;
+        }));
+        assertNull(cache.get(2L, id -> fail("missing id should be remembered locally")));
+
+        verify(valueOperations).set("cache:stock:2", "", 10, TimeUnit.SECONDS);
+        assertEquals(1, loads.get());
+        assertEquals(1, count("db", "miss"));
+    }
+
+    @Test
+    void testWaitsForLockHolderInsteadOfQueryingDatabase() {
+        when(valueOperations.setIfAbsent(eq("lock:cache:stock:1"), anyString(), anyLong(), any())).thenReturn(false);
+        long expiresAt = System.currentTimeMillis() + 60_000;
+        when(valueOperations.get("cache:stock:1")).thenReturn(null, expiresAt + "|" + STOCK_JSON);
+
+        ItemStock stock = cache.get(1L, id -> fail("only the lock holder should query the database"));
+
+        assertEquals(99, stock.getStock());
+    }
+
+    @Test
+    void testRefreshesAheadOfExpiry() {
+        long expiresAt = System.currentTimeMillis() + 1;
+        when(valueOperations.get("cache:stock:1")).thenReturn(expiresAt + "|" + STOCK_JSON);
+        ItemStock fresh = new ItemStock();
+        fresh.setId(1L);
+        fresh.setStock(98);
+
+        ItemStock stock = cache.get(1L, id -> fresh);
+        refreshTasks.forEach(Runnable::run);
+
+        assertEquals(99, stock.getStock());
+        assertSame(fresh, cache.getLocal().getIfPresent(1L));
+        assertEquals(1, count("db", "refresh"));
+    }
+
+    @Test
+    void testGetAllLoadsOnlyMisses() {
+        long expiresAt = System.currentTimeMillis() + 60_000;
+        when(valueOperations.multiGet(Arrays.asList("cache:stock:1", "cache:stock:2", "cache:stock:3")))
+                .thenReturn(Arrays.asList(expiresAt + "|" + STOCK_JSON, "", null));
+        ItemStock three = new ItemStock();
+        three.setId(3L);
+
+        Map<Long, ItemStock> stocks = cache.getAll(Arrays.asList(1L, 2L, 3L), ids -> {
+            assertEquals(Collections.singletonList(3L), ids);
+            return Collections.singletonMap(3L, three);
+        });
+
+        assertEquals(2, stocks.size());
+        assertSame(three, stocks.get(3L));
+        verify(valueOperations).set(eq("cache:stock:3"), anyString(), anyLong(), eq(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void testCompactModeKeepsBytesInLocalCache() {
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        MultiLevelCache<ItemStock> compact = new MultiLevelCache<>("stock", ItemStock.class,
+                Caffeine.newBuilder().<Long, Object>build(), true, redisTemplate, new ObjectMapper(),
+                new SimpleMeterRegistry(), Duration.ofSeconds(60), new CacheProperties(), refreshTasks::add);
+        when(valueOperations.get("cache:stock:1")).thenReturn((System.currentTimeMillis() + 60_000) + "|" + STOCK_JSON);
+
+        ItemStock stock = compact.get(1L, id -> fail("database should not be queried"));
+        ItemStock again = compact.get(1L, id -> fail("database should not be queried"));
+
+        assertTrue(compact.getLocal().getIfPresent(1L) instanceof byte[]);
+        assertEquals(stock, again);
+        assertNotSame(stock, again);
+        assertEquals(99, again.getStock());
+    }
+
+    private double count(String tier, String result) {
+        return registry.get("cache.tier.gets").tags("cache", "stock", "tier", tier, "result", result).counter().count();
+    }
+}
@@ -0,0 +1,135 @@
+package com.heima.item.test;
+
+import com.heima.item.config.StockProperties;
+import com.heima.item.pojo.ItemStock;
+import com.heima.item.service.IItemStockService;
+import com.heima.item.stock.StockCounter;
+import com.heima.item.stock.StockFlusher;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class StockFlusherTest {
+
+    private StockCounter stockCounter;
+
+    private IItemStockService stockService;
+
+    private StockFlusher flusher;
+
+    @BeforeEach
+    void setUp() {
+        stockCounter = mock(StockCounter.class);
+        stockService = mock(IItemStockService.class);
+        StockProperties properties = new StockProperties();
+        properties.setFlushBatchSize(2);
+        properties.setMissingRetries(2);
+        when(stockCounter.lockFlush(anyString(), anyLong())).thenReturn(true);
+        when(stockCounter.renewFlushLock(anyString(), anyLong())).thenReturn(true);
+
+        flusher = new StockFlusher();
+        ReflectionTestUtils.setField(flusher, "stockCounter", stockCounter);
+        ReflectionTestUtils.setField(flusher, "stockService", stockService);
+        ReflectionTestUtils.setField(flusher, "properties", properties);
+    }
+
+    @Test
+    void testFlushWritesCountersInBatches() {
+        when(stockCounter.popDirty(2))
+                .thenReturn(Arrays.asList(1L, 2L))
+                .thenReturn(Collections.singletonList(3L));
+        List<ItemStock> first = Arrays.asList(stock(1L, 9, 1), stock(2L, 8, 2));
+        List<ItemStock> second = Collections.singletonList(stock(3L, 7, 3));
+        when(stockCounter.readAll(Arrays.asList(1L, 2L))).thenReturn(first);
+        when(stockCounter.readAll(Collections.singletonList(3L))).thenReturn(second);
+
+        flusher.flush();
+
+        verify(stockService).updateBatchById(first, 2);
+        verify(stockService).updateBatchById(second, 2);
+        verify(stockCounter).unlockFlush(anyString());
+    }
+
+    @Test
+    void testSkipsWhileAnotherInstanceFlushes() {
+        when(stockCounter.lockFlush(anyString(), anyLong())).thenReturn(false);
+
+        flusher.flush();
+
+        verify(stockCounter, never()).popDirty(anyInt());
+    }
+
+    @Test
+    void testStopsWhenLeaseIsLost() {
+        when(stockCounter.popDirty(2)).thenReturn(Arrays.asList(1L, 2L));
+        when(stockCounter.readAll(anyList())).thenReturn(Arrays.asList(stock(1L, 9, 1), stock(2L, 8, 2)));
+        when(stockCounter.renewFlushLock(anyString(), anyLong())).thenReturn(false);
+
+        flusher.flush();
+
+        verify(stockCounter, times(1)).popDirty(2);
+    }
+
+    @Test
+    void testFailedBatchIsMarkedDirtyAgain() {
+        when(stockCounter.popDirty(2)).thenReturn(Arrays.asList(1L, 2L));
+        when(stockCounter.readAll(anyList())).thenReturn(Collections.singletonList(stock(1L, 9, 1)));
+        when(stockService.updateBatchById(anyCollection(), anyInt())).thenThrow(new IllegalStateException("db down"));
+
+        assertThrows(IllegalStateException.class, () -> flusher.flush());
+
+        verify(stockCounter).markDirty(Arrays.asList(1L, 2L));
+    }
+
+    @Test
+    void testRedisFailureKeepsIdsDirty() {
+        when(stockCounter.popDirty(2)).thenReturn(Arrays.asList(1L, 2L));
+        when(stockCounter.readAll(anyList())).thenThrow(new IllegalStateException("redis down"));
+
+        assertThrows(IllegalStateException.class, () -> flusher.flush());
+
+        verify(stockService, never()).updateBatchById(anyCollection(), anyInt());
+        verify(stockCounter).markDirty(Arrays.asList(1L, 2L));
+    }
+
+    @Test
+    void testIdsWithoutCounterAreMarkedDirtyAgain() {
+        when(stockCounter.popDirty(2))
+                .thenReturn(Arrays.asList(1L, 2L))
+                .thenReturn(Collections.emptyList());
+        List<ItemStock> stocks = Collections.singletonList(stock(1L, 9, 1));
+        when(stockCounter.readAll(Arrays.asList(1L, 2L))).thenReturn(stocks);
+
+        flusher.flush();
+
+        verify(stockService).updateBatchById(stocks, 2);
+        verify(stockCounter).markDirty(Collections.singletonList(2L));
+    }
+
+    @Test
+    void testIdsWithoutCounterAreDroppedAfterRetries() {
+        when(stockCounter.popDirty(2)).thenReturn(Collections.singletonList(2L));
+        when(stockCounter.readAll(anyList())).thenReturn(Collections.emptyList());
+
+        flusher.flush();
+        flusher.flush();
+
+        verify(stockCounter, times(1)).markDirty(Collections.singletonList(2L));
+    }
+
+    private static ItemStock stock(Long id, int stock, int sold) {
+        ItemStock itemStock = new ItemStock();
+        itemStock.setId(id);
+        itemStock.setStock(stock);
+        itemStock.setSold(sold);
+        return itemStock;
+    }
+}
@@ -0,0 +1,22 @@
+package cn.itcast.hotel.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@Data
+@ConfigurationProperties(prefix = "hotel.list")
+public class ListProperties {
+    // how /hotel/list reports the total: EXACT counts tb_hotel at most once per ttl,
+    // ESTIMATED reads the InnoDB row estimate, NONE leaves it out
+    private TotalMode totalMode = TotalMode.EXACT;
+    // ms a counted or estimated total is reused
+    private long totalTtl = 60000;
+    // largest page size accepted by /hotel/list
+    private int maxSize = 100;
+
+    public enum TotalMode {
+        EXACT, ESTIMATED, NONE
+    }
+}
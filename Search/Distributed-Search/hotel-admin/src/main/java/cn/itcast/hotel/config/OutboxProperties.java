@@ -0,0 +1,20 @@
+package cn.itcast.hotel.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@Data
+@ConfigurationProperties(prefix = "hotel.outbox")
+public class OutboxProperties {
+    // outbox rows published per confirm round trip
+    private int batchSize = 500;
+    // ms between two drains once the outbox is empty
+    private long pollInterval = 500;
+    // ms to wait for the broker to confirm a batch before it is retried
+    private long confirmTimeout = 5000;
+    // seconds a claimed batch is reserved for one instance; after that another
+    // instance may claim and publish it again, so keep it well above confirmTimeout
+    private long claimLease = 60;
+}
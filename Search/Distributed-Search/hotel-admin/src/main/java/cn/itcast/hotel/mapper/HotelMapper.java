@@ -2,6 +2,10 @@ package cn.itcast.hotel.mapper;
 
 import cn.itcast.hotel.pojo.Hotel;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Select;
 
 public interface HotelMapper extends BaseMapper<Hotel> {
+
+    @Select("select TABLE_ROWS from information_schema.TABLES where TABLE_SCHEMA = database() and TABLE_NAME = 'tb_hotel'")
+    Long estimateRows();
 }
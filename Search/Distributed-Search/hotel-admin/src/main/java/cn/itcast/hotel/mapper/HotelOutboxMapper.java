@@ -0,0 +1,18 @@
+package cn.itcast.hotel.mapper;
+
+import cn.itcast.hotel.pojo.HotelOutbox;
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Update;
+
+public interface HotelOutboxMapper extends BaseMapper<HotelOutbox> {
+
+    // claims up to limit unclaimed or expired rows for owner, in id order
+    @Update("update tb_hotel_outbox set claimed_by = #{owner}, claimed_until = date_add(now(), interval #{leaseSeconds} second) " +
+            "where claimed_until is null or claimed_until < now() order by id limit #{limit}")
+    int claim(@Param("owner") String owner, @Param("leaseSeconds") long leaseSeconds, @Param("limit") int limit);
+
+    // hands rows owner could not publish back to every relay
+    @Update("update tb_hotel_outbox set claimed_by = null, claimed_until = null where claimed_by = #{owner}")
+    int release(@Param("owner") String owner);
+}
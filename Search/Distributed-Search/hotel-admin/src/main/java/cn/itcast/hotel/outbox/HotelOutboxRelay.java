@@ -0,0 +1,106 @@
+package cn.itcast.hotel.outbox;
+
+import cn.itcast.hotel.config.OutboxProperties;
+import cn.itcast.hotel.constants.MqConstants;
+import cn.itcast.hotel.mapper.HotelOutboxMapper;
+import cn.itcast.hotel.pojo.HotelOutbox;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Publishes tb_hotel_outbox to the hotel exchange in id order. Each batch is
+ * coalesced per hotel (the latest change wins) and sent as at most one
+ * insert and one delete message carrying the list of hotel ids, so repeated
+ * edits within a poll interval reach the index once. A batch is sent on one
+ * channel and deleted only after the broker confirmed all of it, so a failed
+ * or unconfirmed batch stays in the outbox and is sent again on the next
+ * drain.
+ * <p>
+ * Every admin instance runs the relay, so a batch is first claimed for this
+ * instance (claimed_by, for claimLease seconds) and only claimed rows are
+ * published. A failed batch is released for any instance to retry. Delivery
+ * is still at least once: a claim that expires mid-publish, or a crash after
+ * the confirm and before the delete, publishes rows again, and batches of
+ * different instances may arrive out of order. Both are safe only because
+ * hotel-demo re-reads every id from tb_hotel instead of trusting the event.
+ */
+@Slf4j
+@Component
+public class HotelOutboxRelay {
+
+    @Autowired
+    private HotelOutboxMapper outboxMapper;
+
+    @Autowired
+    private RabbitTemplate rabbitTemplate;
+
+    @Autowired
+    private OutboxProperties outboxProperties;
+
+    private final String owner = UUID.randomUUID().toString();
+
+    @Scheduled(fixedDelayString = "${hotel.outbox.poll-interval:500}")
+    public void drain() {
+        try {
+            int batchSize = outboxProperties.getBatchSize();
+            int relayed;
+            do {
+                relayed = relayBatch(batchSize);
+            } while (relayed == batchSize);
+        } catch (Exception e) {
+            log.error("relaying hotel outbox failed, retrying on the next drain", e);
+        }
+    }
+
+    private int relayBatch(int batchSize) {
+        outboxMapper.claim(owner, outboxProperties.getClaimLease(), batchSize);
+        List<HotelOutbox> batch = outboxMapper.selectList(Wrappers.<HotelOutbox>lambdaQuery()
+                .eq(HotelOutbox::getClaimedBy, owner)
+                .orderByAsc(HotelOutbox::getId)
+                .last("limit " + batchSize));
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        // coalesce: one entry per hotel, the latest change wins
+        Map<Long, String> latest = new LinkedHashMap<>();
+        for (HotelOutbox event : batch) {
+            latest.remove(event.getHotelId());
+            latest.put(event.getHotelId(), event.getRoutingKey());
+        }
+        ArrayList<Long> insertIds = new ArrayList<>();
+        ArrayList<Long> deleteIds = new ArrayList<>();
+        latest.forEach((hotelId, routingKey) ->
+                (MqConstants.HOTEL_DELETE_KEY.equals(routingKey) ? deleteIds : insertIds).add(hotelId));
+        try {
+            rabbitTemplate.invoke(operations -> {
+                if (!insertIds.isEmpty()) {
+                    operations.convertAndSend(MqConstants.HOTEL_EXCHANGE, MqConstants.HOTEL_INSERT_KEY, insertIds);
+                }
+                if (!deleteIds.isEmpty()) {
+                    operations.convertAndSend(MqConstants.HOTEL_EXCHANGE, MqConstants.HOTEL_DELETE_KEY, deleteIds);
+                }
+                operations.waitForConfirmsOrDie(outboxProperties.getConfirmTimeout());
+                return null;
+            });
+        } catch (RuntimeException e) {
+            outboxMapper.release(owner);
+            throw e;
+        }
+        List<Long> ids = new ArrayList<>(batch.size());
+        for (HotelOutbox event : batch) {
+            ids.add(event.getId());
+        }
+        outboxMapper.deleteBatchIds(ids);
+        return batch.size();
+    }
+}
@@ -1,6 +1,7 @@
 package cn.itcast.hotel.pojo;
 
 import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
 import com.baomidou.mybatisplus.annotation.TableId;
 import com.baomidou.mybatisplus.annotation.TableName;
 import lombok.Data;
@@ -21,4 +22,6 @@ public class Hotel {
     private String longitude;
     private String latitude;
     private String pic;
+    @TableField("is_ad")
+    private Boolean isAD;
 }
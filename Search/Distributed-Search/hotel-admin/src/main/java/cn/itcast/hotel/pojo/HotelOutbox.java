@@ -0,0 +1,27 @@
+package cn.itcast.hotel.pojo;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+@Data
+@NoArgsConstructor
+@TableName("tb_hotel_outbox")
+public class HotelOutbox {
+    @TableId(type = IdType.AUTO)
+    private Long id;
+    private Long hotelId;
+    private String routingKey;
+    private Date createTime;
+    private String claimedBy;
+    private Date claimedUntil;
+
+    public HotelOutbox(Long hotelId, String routingKey) {
+        this.hotelId = hotelId;
+        this.routingKey = routingKey;
+    }
+}
@@ -8,6 +8,8 @@ import java.util.List;
 public class PageResult {
     private Long total;
     private List<Hotel> hotels;
+    // pass back as lastId for the next page, null on the last page
+    private Long lastId;
 
     public PageResult() {
     }
@@ -1,8 +1,18 @@
 package cn.itcast.hotel.service;
 
 import cn.itcast.hotel.pojo.Hotel;
+import cn.itcast.hotel.pojo.PageResult;
 import com.baomidou.mybatisplus.extension.service.IService;
 
 public interface IHotelService extends IService<Hotel> {
 
+    PageResult listPage(int page, int size);
+
+    PageResult listAfter(Long lastId, int size);
+
+    void saveHotel(Hotel hotel);
+
+    void updateHotel(Hotel hotel);
+
+    void deleteHotel(Long id);
 }
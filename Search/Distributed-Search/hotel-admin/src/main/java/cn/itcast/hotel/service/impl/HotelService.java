@@ -1,11 +1,103 @@
 package cn.itcast.hotel.service.impl;
 
+import cn.itcast.hotel.config.ListProperties;
+import cn.itcast.hotel.constants.MqConstants;
 import cn.itcast.hotel.mapper.HotelMapper;
+import cn.itcast.hotel.mapper.HotelOutboxMapper;
 import cn.itcast.hotel.pojo.Hotel;
+import cn.itcast.hotel.pojo.HotelOutbox;
+import cn.itcast.hotel.pojo.PageResult;
 import cn.itcast.hotel.service.IHotelService;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
+
+/**
+ * Every write records its change event in tb_hotel_outbox within the same
+ * transaction; HotelOutboxRelay publishes it afterwards. Listing never runs a
+ * count per request, the total is cached as configured in ListProperties.
+ */
 @Service
 public class HotelService extends ServiceImpl<HotelMapper, Hotel> implements IHotelService {
+
+    @Autowired
+    private HotelOutboxMapper outboxMapper;
+
+    @Autowired
+    private ListProperties listProperties;
+
+    private volatile Long cachedTotal;
+
+    private volatile long totalExpiresAt;
+
+    @Override
+    public PageResult listPage(int page, int size) {
+        // no count query, the total comes from total()
+        Page<Hotel> result = lambdaQuery()
+                .orderByAsc(Hotel::getId)
+                .page(new Page<>(page, size, false));
+        return toPageResult(result.getRecords(), size);
+    }
+
+    @Override
+    public PageResult listAfter(Long lastId, int size) {
+        // keyset on the primary key, as cheap at the last page as at the first
+        List<Hotel> hotels = lambdaQuery()
+                .gt(Hotel::getId, lastId)
+                .orderByAsc(Hotel::getId)
+                .last("limit " + size)
+                .list();
+        return toPageResult(hotels, size);
+    }
+
+    private PageResult toPageResult(List<Hotel> hotels, int size) {
+        PageResult pageResult = new PageResult(total(), hotels);
+        if (hotels.size() == size) {
+            pageResult.setLastId(hotels.get(hotels.size() - 1).getId());
+        }
+        return pageResult;
+    }
+
+    private Long total() {
+        if (listProperties.getTotalMode() == ListProperties.TotalMode.NONE) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        if (cachedTotal == null || now >= totalExpiresAt) {
+            synchronized (this) {
+                if (cachedTotal == null || now >= totalExpiresAt) {
+                    cachedTotal = listProperties.getTotalMode() == ListProperties.TotalMode.ESTIMATED
+                            ? getBaseMapper().estimateRows()
+                            : (long) count();
+                    totalExpiresAt = now + listProperties.getTotalTtl();
+                }
+            }
+        }
+        return cachedTotal;
+    }
+
+    @Override
+    @Transactional
+    public void saveHotel(Hotel hotel) {
+        save(hotel);
+        outboxMapper.insert(new HotelOutbox(hotel.getId(), MqConstants.HOTEL_INSERT_KEY));
+    }
+
+    @Override
+    @Transactional
+    public void updateHotel(Hotel hotel) {
+        updateById(hotel);
+        outboxMapper.insert(new HotelOutbox(hotel.getId(), MqConstants.HOTEL_INSERT_KEY));
+    }
+
+    @Override
+    @Transactional
+    public void deleteHotel(Long id) {
+        removeById(id);
+        outboxMapper.insert(new HotelOutbox(id, MqConstants.HOTEL_DELETE_KEY));
+    }
 }
@@ -1,13 +1,13 @@
 package cn.itcast.hotel.web;
 
-import cn.itcast.hotel.constants.MqConstants;
+import cn.itcast.hotel.config.ListProperties;
 import cn.itcast.hotel.pojo.Hotel;
 import cn.itcast.hotel.pojo.PageResult;
 import cn.itcast.hotel.service.IHotelService;
-import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.security.InvalidParameterException;
 
@@ -19,7 +19,7 @@ public class HotelController {
     private IHotelService hotelService;
 
     @Autowired
-    private RabbitTemplate rabbitTemplate;
+    private ListProperties listProperties;
 
     @GetMapping("/{id}")
     public Hotel queryById(@PathVariable("id") Long id){
@@ -29,19 +29,27 @@ public class HotelController {
     @GetMapping("/list")
     public PageResult hotelList(
             @RequestParam(value = "page", defaultValue = "1") Integer page,
-            @RequestParam(value = "size", defaultValue = "1") Integer size
+            @RequestParam(value = "size", defaultValue = "1") Integer size,
+            @RequestParam(value = "lastId", required = false) Long lastId
     ){
-        Page<Hotel> result = hotelService.page(new Page<>(page, size));
-
-        return new PageResult(result.getTotal(), result.getRecords());
+        // size ends up in the limit clause, and 0 or less is invalid SQL
+        if (size < 1 || size > listProperties.getMaxSize()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "size must be between 1 and " + listProperties.getMaxSize());
+        }
+        if (page < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "page must be at least 1");
+        }
+        if (lastId != null) {
+            return hotelService.listAfter(lastId, size);
+        }
+        return hotelService.listPage(page, size);
     }
 
     @PostMapping
     public void saveHotel(@RequestBody Hotel hotel){
 
-        hotelService.save(hotel);
-
-        rabbitTemplate.convertAndSend(MqConstants.HOTEL_EXCHANGE, MqConstants.HOTEL_INSERT_KEY, hotel.getId());
+        hotelService.saveHotel(hotel);
     }
 
     @PutMapping()
@@ -49,13 +57,11 @@ public class HotelController {
         if (hotel.getId() == null) {
             throw new InvalidParameterException("id不能为空");
         }
-        hotelService.updateById(hotel);
-        rabbitTemplate.convertAndSend(MqConstants.HOTEL_EXCHANGE, MqConstants.HOTEL_INSERT_KEY, hotel.getId());
+        hotelService.updateHotel(hotel);
     }
 
     @DeleteMapping("/{id}")
     public void deleteById(@PathVariable("id") Long id) {
-        hotelService.removeById(id);
-        rabbitTemplate.convertAndSend(MqConstants.HOTEL_EXCHANGE, MqConstants.HOTEL_DELETE_KEY, id);
+        hotelService.deleteHotel(id);
     }
 }
@@ -0,0 +1,121 @@
+package cn.itcast.hotel.outbox;
+
+import cn.itcast.hotel.config.OutboxProperties;
+import cn.itcast.hotel.constants.MqConstants;
+import cn.itcast.hotel.mapper.HotelOutboxMapper;
+import cn.itcast.hotel.pojo.HotelOutbox;
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class HotelOutboxRelayTest {
+
+    private HotelOutboxMapper outboxMapper;
+
+    private RabbitOperations operations;
+
+    private HotelOutboxRelay relay;
+
+    @BeforeAll
+    static void initTableInfo() {
+        TableInfoHelper.initTableInfo(new MapperBuilderAssistant(new MybatisConfiguration(), ""), HotelOutbox.class);
+    }
+
+    @BeforeEach
+    void setUp() {
+        outboxMapper = mock(HotelOutboxMapper.class);
+        operations = mock(RabbitOperations.class);
+        RabbitTemplate rabbitTemplate = mock(RabbitTemplate.class);
+        when(rabbitTemplate.invoke(any())).thenAnswer(invocation ->
+                invocation.<RabbitOperations.OperationsCallback<?>>getArgument(0).doInRabbit(operations));
+        OutboxProperties properties = new OutboxProperties();
+        properties.setBatchSize(2);
+
+        relay = new HotelOutboxRelay();
+        ReflectionTestUtils.setField(relay, "outboxMapper", outboxMapper);
+        ReflectionTestUtils.setField(relay, "rabbitTemplate", rabbitTemplate);
+        ReflectionTestUtils.setField(relay, "outboxProperties", properties);
+    }
+
+    @Test
+    void testDrainDeletesConfirmedBatches() {
+        when(outboxMapper.selectList(any()))
+                .thenReturn(Arrays.asList(event(1L, 10L, MqConstants.HOTEL_INSERT_KEY), event(2L, 11L, MqConstants.HOTEL_DELETE_KEY)))
+                .thenReturn(Collections.singletonList(event(3L, 12L, MqConstants.HOTEL_INSERT_KEY)));
+
+        relay.drain();
+
+        verify(operations).convertAndSend(MqConstants.HOTEL_EXCHANGE, MqConstants.HOTEL_INSERT_KEY, Collections.singletonList(10L));
+        verify(operations).convertAndSend(MqConstants.HOTEL_EXCHANGE, MqConstants.HOTEL_DELETE_KEY, Collections.singletonList(11L));
+        verify(operations).convertAndSend(MqConstants.HOTEL_EXCHANGE, MqConstants.HOTEL_INSERT_KEY, Collections.singletonList(12L));
+        verify(outboxMapper).deleteBatchIds(Arrays.asList(1L, 2L));
+        verify(outboxMapper).deleteBatchIds(Collections.singletonList(3L));
+    }
+
+    @Test
+    void testBatchIsCoalescedPerHotel() {
+        when(outboxMapper.selectList(any()))
+                .thenReturn(Arrays.asList(
+                        event(1L, 10L, MqConstants.HOTEL_INSERT_KEY),
+                        event(2L, 11L, MqConstants.HOTEL_INSERT_KEY),
+                        event(3L, 10L, MqConstants.HOTEL_INSERT_KEY),
+                        event(4L, 11L, MqConstants.HOTEL_DELETE_KEY),
+                        event(5L, 12L, MqConstants.HOTEL_INSERT_KEY)));
+        ReflectionTestUtils.setField(relay, "outboxProperties", new OutboxProperties());
+
+        relay.drain();
+
+        verify(operations).convertAndSend(MqConstants.HOTEL_EXCHANGE, MqConstants.HOTEL_INSERT_KEY, Arrays.asList(10L, 12L));
+        verify(operations).convertAndSend(MqConstants.HOTEL_EXCHANGE, MqConstants.HOTEL_DELETE_KEY, Collections.singletonList(11L));
+        verify(operations, times(2)).convertAndSend(anyString(), anyString(), any(Object.class));
+        verify(outboxMapper).deleteBatchIds(Arrays.asList(1L, 2L, 3L, 4L, 5L));
+    }
+
+    @Test
+    void testUnconfirmedBatchStaysInOutbox() {
+        when(outboxMapper.selectList(any()))
+                .thenReturn(Collections.singletonList(event(1L, 10L, MqConstants.HOTEL_INSERT_KEY)));
+        doThrow(new AmqpException("nack")).when(operations).waitForConfirmsOrDie(anyLong());
+
+        relay.drain();
+
+        verify(outboxMapper, never()).deleteBatchIds(anyCollection());
+        verify(outboxMapper).release(anyString());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testOnlyClaimedRowsArePublished() {
+        when(outboxMapper.selectList(any())).thenReturn(Collections.emptyList());
+
+        relay.drain();
+
+        verify(outboxMapper).claim(anyString(), eq(60L), eq(2));
+        ArgumentCaptor<Wrapper<HotelOutbox>> wrapper = ArgumentCaptor.forClass(Wrapper.class);
+        verify(outboxMapper).selectList(wrapper.capture());
+        assertTrue(wrapper.getValue().getSqlSegment().startsWith("(claimed_by = "));
+        verify(operations, never()).convertAndSend(anyString(), anyString(), any(Object.class));
+    }
+
+    private static HotelOutbox event(Long id, Long hotelId, String routingKey) {
+        HotelOutbox event = new HotelOutbox(hotelId, routingKey);
+        event.setId(id);
+        return event;
+    }
+}
@@ -0,0 +1,91 @@
+package cn.itcast.hotel.service.impl;
+
+import cn.itcast.hotel.config.ListProperties;
+import cn.itcast.hotel.mapper.HotelMapper;
+import cn.itcast.hotel.pojo.Hotel;
+import cn.itcast.hotel.pojo.PageResult;
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.conditions.AbstractWrapper;
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class HotelServiceTest {
+
+    private HotelMapper hotelMapper;
+
+    private HotelService hotelService;
+
+    @BeforeAll
+    static void initTableInfo() {
+        TableInfoHelper.initTableInfo(new MapperBuilderAssistant(new MybatisConfiguration(), ""), Hotel.class);
+    }
+
+    @BeforeEach
+    void setUp() {
+        hotelMapper = mock(HotelMapper.class);
+        ListProperties properties = new ListProperties();
+        properties.setTotalMode(ListProperties.TotalMode.ESTIMATED);
+        when(hotelMapper.estimateRows()).thenReturn(3L);
+
+        hotelService = new HotelService();
+        ReflectionTestUtils.setField(hotelService, "baseMapper", hotelMapper);
+        ReflectionTestUtils.setField(hotelService, "listProperties", properties);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFullPageReturnsItsLastIdAsCursor() {
+        when(hotelMapper.selectList(any())).thenReturn(Arrays.asList(hotel(11L), hotel(12L)));
+
+        PageResult result = hotelService.listAfter(10L, 2);
+
+        ArgumentCaptor<Wrapper<Hotel>> wrapper = ArgumentCaptor.forClass(Wrapper.class);
+        verify(hotelMapper).selectList(wrapper.capture());
+        // strictly after the boundary id, so the row at lastId is not repeated
+        assertEquals("(id > #{ew.paramNameValuePairs.MPGENVAL1}) ORDER BY id ASC limit 2",
+                wrapper.getValue().getSqlSegment());
+        assertEquals(10L, ((AbstractWrapper<?, ?, ?>) wrapper.getValue()).getParamNameValuePairs().get("MPGENVAL1"));
+        assertEquals(12L, result.getLastId());
+        assertEquals(3L, result.getTotal());
+    }
+
+    @Test
+    void testShortPageHasNoCursor() {
+        when(hotelMapper.selectList(any())).thenReturn(Collections.singletonList(hotel(13L)));
+
+        PageResult result = hotelService.listAfter(12L, 2);
+
+        assertEquals(1, result.getHotels().size());
+        assertNull(result.getLastId());
+    }
+
+    @Test
+    void testEmptyLastPage() {
+        when(hotelMapper.selectList(any())).thenReturn(Collections.emptyList());
+
+        PageResult result = hotelService.listAfter(13L, 2);
+
+        assertTrue(result.getHotels().isEmpty());
+        assertNull(result.getLastId());
+        assertEquals(3L, result.getTotal());
+    }
+
+    private static Hotel hotel(Long id) {
+        Hotel hotel = new Hotel();
+        hotel.setId(id);
+        return hotel;
+    }
+}
@@ -21,9 +21,12 @@ public class HotelDemoApplication {
 
     @Bean
     public RestHighLevelClient client() {
+        // the defaults (30 connections, 10 per node) cap the async searches in flight
         return new RestHighLevelClient(RestClient.builder(
                 HttpHost.create("localhost:9200")
-        ));
+        ).setHttpClientConfigCallback(builder -> builder
+                .setMaxConnTotal(200)
+                .setMaxConnPerRoute(200)));
     }
 
 }
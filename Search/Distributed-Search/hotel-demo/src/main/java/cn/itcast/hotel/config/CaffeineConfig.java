@@ -0,0 +1,35 @@
+package cn.itcast.hotel.config;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+@Configuration
+public class CaffeineConfig {
+
+    /**
+     * Concurrent misses on a key share one aggregation, and a load still
+     * running when the cache is invalidated is dropped instead of cached.
+     */
+    @Bean
+    public AsyncCache<List<Object>, Map<String, List<String>>> filterAsyncCache() {
+        return Caffeine.newBuilder()
+                .initialCapacity(100)
+                .maximumSize(10_000)
+                .expireAfterWrite(Duration.ofMinutes(5))
+                .buildAsync();
+    }
+
+    // blocking view of the same entries
+    @Bean
+    public Cache<List<Object>, Map<String, List<String>>> filterCache(
+            AsyncCache<List<Object>, Map<String, List<String>>> filterAsyncCache) {
+        return filterAsyncCache.synchronous();
+    }
+}
@@ -0,0 +1,17 @@
+package cn.itcast.hotel.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@Data
+@ConfigurationProperties(prefix = "hotel.indexer")
+public class IndexerProperties {
+    // flush as soon as this many distinct hotel ids are pending
+    private int batchSize = 500;
+    // flush whatever is pending at least this often, in milliseconds
+    private long flushInterval = 1000;
+    // a message whose hotels failed to index this many times is dead-lettered instead of requeued
+    private int maxAttempts = 5;
+}
@@ -3,7 +3,9 @@ package cn.itcast.hotel.config;
 import cn.itcast.hotel.constants.MqConstants;
 import org.springframework.amqp.core.Binding;
 import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.FanoutExchange;
 import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueBuilder;
 import org.springframework.amqp.core.TopicExchange;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -16,14 +18,37 @@ public class MqConfig {
         return new TopicExchange(MqConstants.HOTEL_EXCHANGE, true, false);
     }
 
+    /**
+     * Messages the indexer gives up on (nacked without requeue) keep their
+     * original routing key and land in hotel.dead.queue for inspection.
+     */
+    @Bean
+    public FanoutExchange deadLetterExchange() {
+        return new FanoutExchange(MqConstants.HOTEL_DEAD_LETTER_EXCHANGE, true, false);
+    }
+
+    @Bean
+    public Queue deadLetterQueue() {
+        return new Queue(MqConstants.HOTEL_DEAD_LETTER_QUEUE, true);
+    }
+
+    @Bean
+    public Binding deadLetterBinding() {
+        return BindingBuilder.bind(deadLetterQueue()).to(deadLetterExchange());
+    }
+
     @Bean
     public Queue insertQueue() {
-        return new Queue(MqConstants.HOTEL_INSERT_QUEUE, true);
+        return QueueBuilder.durable(MqConstants.HOTEL_INSERT_QUEUE)
+                .deadLetterExchange(MqConstants.HOTEL_DEAD_LETTER_EXCHANGE)
+                .build();
     }
 
     @Bean
     public Queue deleteQueue() {
-        return new Queue(MqConstants.HOTEL_DELETE_QUEUE, true);
+        return QueueBuilder.durable(MqConstants.HOTEL_DELETE_QUEUE)
+                .deadLetterExchange(MqConstants.HOTEL_DEAD_LETTER_EXCHANGE)
+                .build();
     }
 
     @Bean
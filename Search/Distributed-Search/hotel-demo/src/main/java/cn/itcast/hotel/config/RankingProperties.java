@@ -0,0 +1,17 @@
+package cn.itcast.hotel.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@Data
+@ConfigurationProperties(prefix = "hotel.ranking")
+public class RankingProperties {
+    // weight multiplied into the score of advertised hotels, 0 turns the boost off
+    private float adWeight = 10;
+    // multiply in log1p of the hotel score so better rated hotels rank higher
+    private boolean scoreFactor = false;
+    // gauss decay on price around minPrice (or 0), the score halves at this distance; 0 turns it off
+    private int priceDecayScale = 0;
+}
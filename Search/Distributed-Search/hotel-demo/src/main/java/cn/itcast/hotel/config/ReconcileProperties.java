@@ -0,0 +1,20 @@
+package cn.itcast.hotel.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@Data
+@ConfigurationProperties(prefix = "hotel.reconcile")
+public class ReconcileProperties {
+    // compare tb_hotel with the hotel index in the background; every instance
+    // that enables it scans everything, so turn it on for exactly one instance
+    private boolean enabled = false;
+    // ms between two runs, the first run starts one interval after startup
+    private long interval = 3600000;
+    // rows and docs read per keyset / search_after page
+    private int chunkSize = 1000;
+    // differing hotels are fixed in bulk requests of this many ids
+    private int bulkSize = 500;
+}
@@ -0,0 +1,24 @@
+package cn.itcast.hotel.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@Data
+@ConfigurationProperties(prefix = "hotel.reindex")
+public class ReindexProperties {
+    // rows read from tb_hotel per keyset query
+    private int chunkSize = 1000;
+    // threads converting hotels into HotelDoc
+    private int workers = 4;
+    // a bulk request is sent once it holds this many docs or bytes
+    private int bulkActions = 1000;
+    private int bulkSizeMb = 5;
+    // bulk requests in flight at once, further adds block
+    private int concurrentRequests = 2;
+    // drop the indices the alias pointed to before the swap
+    private boolean deleteOldIndices = true;
+    // how often instances check whether a reindex is loading and their writes must be mirrored
+    private long writeAliasCheckInterval = 5000;
+}
@@ -0,0 +1,30 @@
+package cn.itcast.hotel.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+import javax.validation.constraints.DecimalMin;
+
+@Component
+@Data
+@ConfigurationProperties(prefix = "hotel.search")
+@Validated
+public class SearchProperties {
+    // pin cursor scrolls to a point in time, so pages stay consistent while the index changes
+    private boolean pointInTime = false;
+    // how long an idle point in time is kept between two pages
+    private String pointInTimeKeepAlive = "1m";
+    // nearby search starts with this radius in km and multiplies it by the factor (> 1)
+    // until the page is filled, past the max radius every match is sorted;
+    // a factor of 1 or less would never reach the max radius, startup fails instead
+    @DecimalMin(value = "0", inclusive = false)
+    private double nearbyInitialRadius = 2;
+    @DecimalMin(value = "1", inclusive = false)
+    private double nearbyExpandFactor = 4;
+    @DecimalMin(value = "0", inclusive = false)
+    private double nearbyMaxRadius = 50;
+    // ms between two rebuilds of the in-memory suggestion trie from tb_hotel
+    private long suggestionRebuildInterval = 600000;
+}
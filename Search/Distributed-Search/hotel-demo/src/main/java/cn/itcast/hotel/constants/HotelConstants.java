@@ -1,15 +1,55 @@
 package cn.itcast.hotel.constants;
 
 public class HotelConstants {
+
+    public static final String INDEX_NAME = "hotel";
+
+    // _source fields rendered by the hotel list, suggestion and the copy_to fields are left out
+    public static final String[] LIST_FIELDS = {
+            "id", "name", "address", "price", "score", "brand", "city",
+            "starName", "business", "location", "pic", "isAD"
+    };
+
     public static final String MAPPING_HOTEL = "{\n" +
+            "  \"settings\": {\n" +
+            "    \"analysis\": {\n" +
+            "      \"analyzer\": {\n" +
+            "        \"text_analyzer\": {\n" +
+            "          \"tokenizer\": \"ik_max_word\",\n" +
+            "          \"filter\": \"py\"\n" +
+            "        },\n" +
+            "        \"completion_analyzer\": {\n" +
+            "          \"tokenizer\": \"keyword\",\n" +
+            "          \"filter\": \"py\"\n" +
+            "        }\n" +
+            "      },\n" +
+            "      \"filter\": {\n" +
+            "        \"py\": {\n" +
+            "          \"type\": \"pinyin\",\n" +
+            "          \"keep_full_pinyin\": false,\n" +
+            "          \"keep_joined_full_pinyin\": true,\n" +
+            "          \"keep_original\": true,\n" +
+            "          \"limit_first_letter_length\": 16,\n" +
+            "          \"remove_duplicated_term\": true,\n" +
+            "          \"none_chinese_pinyin_tokenize\": false\n" +
+            "        }\n" +
+            "      }\n" +
+            "    }\n" +
+            "  },\n" +
             "  \"mappings\": {\n" +
             "    \"properties\": {\n" +
             "      \"id\": {\n" +
-            "        \"type\": \"keyword\"\n" +
+            "        \"type\": \"long\"\n" +
+            "      },\n" +
+            "      \"fingerprint\": {\n" +
+            "        \"type\": \"long\",\n" +
+            "        \"index\": false\n" +
             "      },\n" +
             "      \"name\": {\n" +
             "        \"type\": \"text\",\n" +
-            "        \"analyzer\": \"ik_max_word\"\n" +
+            "        \"analyzer\": \"text_analyzer\",\n" +
+            "        \"search_analyzer\": \"ik_smart\",\n" +
+            "        \"copy_to\": \"all\"\n" +
             "      },\n" +
             "      \"address\": {\n" +
             "        \"type\": \"keyword\",\n" +
@@ -25,7 +65,7 @@ public class HotelConstants {
             "        \"type\": \"keyword\",\n" +
             "        \"copy_to\": \"all\"\n" +
             "      },\n" +
-            "      \"citp\": {\n" +
+            "      \"city\": {\n" +
             "        \"type\": \"keyword\"\n" +
             "      },\n" +
             "      \"starName\": {\n" +
@@ -42,9 +82,17 @@ public class HotelConstants {
             "        \"type\": \"keyword\",\n" +
             "        \"index\": false\n" +
             "      },\n" +
+            "      \"isAD\": {\n" +
+            "        \"type\": \"boolean\"\n" +
+            "      },\n" +
             "      \"all\": {\n" +
             "        \"type\": \"text\",\n" +
-            "        \"analyzer\": \"ik_max_word\"\n" +
+            "        \"analyzer\": \"text_analyzer\",\n" +
+            "        \"search_analyzer\": \"ik_smart\"\n" +
+            "      },\n" +
+            "      \"suggestion\": {\n" +
+            "        \"type\": \"completion\",\n" +
+            "        \"analyzer\": \"completion_analyzer\"\n" +
             "      }\n" +
             "    }\n" +
             "  }\n" +
@@ -11,4 +11,8 @@ public class MqConstants {
     public final static String HOTEL_INSERT_KEY = "hotel.insert";
 
     public final static String HOTEL_DELETE_KEY = "hotel.delete";
+
+    public final static String HOTEL_DEAD_LETTER_EXCHANGE = "hotel.dlx";
+
+    public final static String HOTEL_DEAD_LETTER_QUEUE = "hotel.dead.queue";
 }
@@ -0,0 +1,223 @@
+package cn.itcast.hotel.index;
+
+import cn.itcast.hotel.config.ReconcileProperties;
+import cn.itcast.hotel.pojo.Hotel;
+import cn.itcast.hotel.pojo.HotelDoc;
+import cn.itcast.hotel.service.IHotelService;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.document.DocumentField;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.sort.SortBuilders;
+import org.elasticsearch.search.sort.SortOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static cn.itcast.hotel.constants.HotelConstants.INDEX_NAME;
+
+/**
+ * Finds hotels whose index doc no longer matches tb_hotel, e.g. after a lost
+ * message, and fixes only those. Both sides are streamed in id order as
+ * (id, fingerprint) pairs, tb_hotel by keyset and the index by search_after
+ * reading doc values only, and merged like a sort-merge join:
+ * <ul>
+ *     <li>row without doc, or fingerprints differ: index the row</li>
+ *     <li>doc without row: re-check the row, delete the doc if it is still gone</li>
+ * </ul>
+ * Memory stays at one chunk per side however many hotels there are.
+ * <p>
+ * Every instance that runs it scans both sides in full, so it is off by
+ * default and meant to be enabled (hotel.reconcile.enabled) on one instance.
+ */
+@Slf4j
+@Component
+public class HotelReconciler {
+
+    @Autowired
+    private IHotelService hotelService;
+
+    @Autowired
+    private RestHighLevelClient client;
+
+    @Autowired
+    private ReconcileProperties properties;
+
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "hotel-reconciler"));
+        long interval = properties.getInterval();
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                reconcile();
+            } catch (Exception e) {
+                log.error("reconciling tb_hotel with the hotel index failed", e);
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    public Report reconcile() {
+        int chunkSize = properties.getChunkSize();
+        long start = System.currentTimeMillis();
+        Report report = reconcile(
+                new Cursor(last -> rowChunk(last == null ? 0 : last[0], chunkSize)),
+                new Cursor(last -> docChunk(last, chunkSize)));
+        log.info("reconciled hotel index in {} ms: {}", System.currentTimeMillis() - start, report);
+        return report;
+    }
+
+    Report reconcile(Cursor rows, Cursor docs) {
+        Report report = new Report();
+        // every differing id is synced from its current row; bulkSync deletes the docs of ids without one
+        List<Long> syncIds = new ArrayList<>();
+        while (rows.peek() != null || docs.peek() != null) {
+            long[] row = rows.peek();
+            long[] doc = docs.peek();
+            if (doc == null || (row != null && row[0] < doc[0])) {
+                syncIds.add(row[0]);
+                report.missing++;
+                rows.next();
+            } else if (row == null || row[0] > doc[0]) {
+                // the row may have been inserted behind the row cursor after it passed,
+                // so the doc is only deleted if the row is still missing when synced
+                syncIds.add(doc[0]);
+                report.orphaned++;
+                docs.next();
+            } else {
+                if (row[1] != doc[1]) {
+                    syncIds.add(row[0]);
+                    report.stale++;
+                }
+                report.matched++;
+                rows.next();
+                docs.next();
+            }
+            if (syncIds.size() >= properties.getBulkSize()) {
+                fix(syncIds, report);
+                syncIds = new ArrayList<>();
+            }
+        }
+        fix(syncIds, report);
+        return report;
+    }
+
+    private void fix(List<Long> syncIds, Report report) {
+        if (syncIds.isEmpty()) {
+            return;
+        }
+        // bulkSync re-reads the rows, so a hotel changed since it was compared is still written correctly
+        Set<Long> failed = hotelService.bulkSync(syncIds, Collections.emptyList());
+        report.failed += failed.size();
+    }
+
+    private List<long[]> rowChunk(long lastId, int chunkSize) {
+        List<Hotel> hotels = hotelService.listAfter(lastId, chunkSize);
+        List<long[]> chunk = new ArrayList<>(hotels.size());
+        for (Hotel hotel : hotels) {
+            chunk.add(new long[]{hotel.getId(), HotelDoc.fingerprint(hotel)});
+        }
+        return chunk;
+    }
+
+    private List<long[]> docChunk(long[] last, int chunkSize) {
+        SearchRequest request = new SearchRequest(INDEX_NAME);
+        request.source()
+                .query(QueryBuilders.matchAllQuery())
+                .fetchSource(false)
+                .docValueField("fingerprint")
+                .sort(SortBuilders.fieldSort("id").order(SortOrder.ASC))
+                .trackTotalHits(false)
+                .size(chunkSize);
+        if (last != null) {
+            request.source().searchAfter(new Object[]{last[0]});
+        }
+        try {
+            SearchResponse response = client.search(request, RequestOptions.DEFAULT);
+            SearchHit[] hits = response.getHits().getHits();
+            List<long[]> chunk = new ArrayList<>(hits.length);
+            for (SearchHit hit : hits) {
+                long id = ((Number) hit.getSortValues()[0]).longValue();
+                // docs written before fingerprints existed count as stale
+                DocumentField fingerprint = hit.field("fingerprint");
+                chunk.add(new long[]{id, fingerprint == null ? 0 : ((Number) fingerprint.getValue()).longValue()});
+            }
+            return chunk;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Reads one side of the merge chunk by chunk, each chunk starting after
+     * the last (id, fingerprint) pair of the previous one.
+     */
+    static class Cursor {
+
+        interface ChunkReader {
+            List<long[]> read(long[] last);
+        }
+
+        private final ChunkReader reader;
+
+        private List<long[]> chunk = Collections.emptyList();
+
+        private int position;
+
+        private long[] last;
+
+        private boolean exhausted;
+
+        Cursor(ChunkReader reader) {
+            this.reader = reader;
+        }
+
+        long[] peek() {
+            if (position == chunk.size() && !exhausted) {
+                chunk = reader.read(last);
+                position = 0;
+                exhausted = chunk.isEmpty();
+            }
+            return exhausted ? null : chunk.get(position);
+        }
+
+        void next() {
+            last = chunk.get(position++);
+        }
+    }
+
+    @Data
+    public static class Report {
+        private long matched;
+        private long stale;
+        private long missing;
+        private long orphaned;
+        private long failed;
+    }
+}
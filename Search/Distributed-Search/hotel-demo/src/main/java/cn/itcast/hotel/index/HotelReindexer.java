@@ -0,0 +1,261 @@
+package cn.itcast.hotel.index;
+
+import cn.itcast.hotel.config.ReindexProperties;
+import cn.itcast.hotel.pojo.Hotel;
+import cn.itcast.hotel.pojo.HotelDoc;
+import cn.itcast.hotel.service.IHotelService;
+import com.alibaba.fastjson.JSON;
+import com.github.benmanes.caffeine.cache.Cache;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequest;
+import org.elasticsearch.action.admin.indices.alias.get.GetAliasesRequest;
+import org.elasticsearch.action.admin.indices.delete.DeleteIndexRequest;
+import org.elasticsearch.action.admin.indices.refresh.RefreshRequest;
+import org.elasticsearch.action.admin.indices.settings.put.UpdateSettingsRequest;
+import org.elasticsearch.action.bulk.BackoffPolicy;
+import org.elasticsearch.action.bulk.BulkProcessor;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.client.indices.CreateIndexRequest;
+import org.elasticsearch.client.indices.GetIndexRequest;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.core.TimeValue;
+import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.xcontent.XContentType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static cn.itcast.hotel.constants.HotelConstants.INDEX_NAME;
+import static cn.itcast.hotel.constants.HotelConstants.MAPPING_HOTEL;
+
+/**
+ * Rebuilds the hotel index from tb_hotel into a fresh versioned index and
+ * points the {@code hotel} alias at it once the load is complete, so searches
+ * keep hitting the old index until the swap.
+ * <p>
+ * MQ updates during the load still go to the old index, so the new index is
+ * also behind {@link ReindexWriteAlias} and every instance mirrors its writes
+ * into it. The load only creates docs, so it never overwrites a newer
+ * mirrored write with the row it read earlier. The one gap is a hotel
+ * deleted between the load reading its chunk and writing it, which comes
+ * back until the reconciler removes it.
+ */
+@Slf4j
+@Component
+public class HotelReindexer {
+
+    @Autowired
+    private IHotelService hotelService;
+
+    @Autowired
+    private RestHighLevelClient client;
+
+    @Autowired
+    private ReindexProperties properties;
+
+    @Autowired
+    private Cache<List<Object>, Map<String, List<String>>> filterCache;
+
+    @Autowired
+    private ReindexWriteAlias writeAlias;
+
+    public String reindex() {
+        String index = INDEX_NAME + "_" + System.currentTimeMillis();
+        try {
+            // 1. create the target index, replicas and refresh are off during the load
+            createIndex(index);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        // until the alias points at it, a failed load leaves nothing worth keeping
+        boolean swapped = false;
+        try {
+            // 2. have every instance mirror its writes before reading tb_hotel
+            openWriteAlias(index);
+            // 3. stream tb_hotel into the target index
+            long failures = load(index);
+            if (failures > 0) {
+                throw new IllegalStateException("reindex into " + index + " failed for " + failures + " docs");
+            }
+            // 4. restore the default settings and make the docs visible
+            UpdateSettingsRequest settings = new UpdateSettingsRequest(index).settings(Settings.builder()
+                    .putNull("index.number_of_replicas")
+                    .putNull("index.refresh_interval"));
+            client.indices().putSettings(settings, RequestOptions.DEFAULT);
+            client.indices().refresh(new RefreshRequest(index), RequestOptions.DEFAULT);
+            // 5. swap the alias
+            Set<String> oldIndices = swapAlias(index);
+            swapped = true;
+            filterCache.invalidateAll();
+            if (properties.isDeleteOldIndices() && !oldIndices.isEmpty()) {
+                client.indices().delete(new DeleteIndexRequest(oldIndices.toArray(new String[0])), RequestOptions.DEFAULT);
+            }
+            return index;
+        } catch (IOException e) {
+            deleteUnlessSwapped(index, swapped);
+            throw new RuntimeException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            deleteUnlessSwapped(index, swapped);
+            throw new IllegalStateException("reindex into " + index + " interrupted", e);
+        } catch (RuntimeException e) {
+            deleteUnlessSwapped(index, swapped);
+            throw e;
+        }
+    }
+
+    private void deleteUnlessSwapped(String index, boolean swapped) {
+        if (swapped) {
+            return;
+        }
+        try {
+            client.indices().delete(new DeleteIndexRequest(index), RequestOptions.DEFAULT);
+            log.info("deleted incomplete index {}", index);
+        } catch (IOException | RuntimeException e) {
+            log.error("failed to delete incomplete index {}", index, e);
+        }
+    }
+
+    private void openWriteAlias(String index) throws IOException, InterruptedException {
+        IndicesAliasesRequest request = new IndicesAliasesRequest();
+        request.addAliasAction(IndicesAliasesRequest.AliasActions.add().index(index).alias(ReindexWriteAlias.NAME));
+        client.indices().updateAliases(request, RequestOptions.DEFAULT);
+        writeAlias.markActive();
+        // two check intervals, so every instance has seen the alias
+        Thread.sleep(properties.getWriteAliasCheckInterval() * 2);
+    }
+
+    private void createIndex(String index) throws IOException {
+        CreateIndexRequest request = new CreateIndexRequest(index);
+        request.source(MAPPING_HOTEL, XContentType.JSON);
+        request.settings(Settings.builder()
+                .put(request.settings())
+                .put("index.number_of_replicas", 0)
+                .put("index.refresh_interval", "-1"));
+        client.indices().create(request, RequestOptions.DEFAULT);
+    }
+
+    private long load(String index) throws InterruptedException {
+        AtomicLong indexed = new AtomicLong();
+        AtomicLong failures = new AtomicLong();
+
+        BulkProcessor processor = BulkProcessor.builder(
+                        (request, listener) -> client.bulkAsync(request, RequestOptions.DEFAULT, listener),
+                        new BulkProcessor.Listener() {
+                            @Override
+                            public void beforeBulk(long executionId, BulkRequest request) {
+                            }
+
+                            @Override
+                            public void afterBulk(long executionId, BulkRequest request, BulkResponse response) {
+                                // a conflict means a mirrored write got there first, and it is newer
+                                long failed = Arrays.stream(response.getItems())
+                                        .filter(item -> item.isFailed() && item.getFailure().getStatus() != RestStatus.CONFLICT)
+                                        .count();
+                                if (failed > 0) {
+                                    log.warn("bulk {} into {}: {}", executionId, index, response.buildFailureMessage());
+                                }
+                                failures.addAndGet(failed);
+                                indexed.addAndGet(request.numberOfActions() - failed);
+                            }
+
+                            @Override
+                            public void afterBulk(long executionId, BulkRequest request, Throwable failure) {
+                                log.error("bulk {} into {} failed", executionId, index, failure);
+                                failures.addAndGet(request.numberOfActions());
+                            }
+                        }, "hotel-reindex")
+                .setBulkActions(properties.getBulkActions())
+                .setBulkSize(new ByteSizeValue(properties.getBulkSizeMb(), ByteSizeUnit.MB))
+                .setConcurrentRequests(properties.getConcurrentRequests())
+                .setBackoffPolicy(BackoffPolicy.exponentialBackoff(TimeValue.timeValueMillis(100), 3))
+                .build();
+
+        // a full work queue makes the reading thread convert the chunk itself,
+        // which in turn stops it from reading ahead of the bulk requests
+        int workers = properties.getWorkers();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(workers * 2), new ThreadPoolExecutor.CallerRunsPolicy());
+        // a chunk that throws must fail the whole reindex, so every chunk is a Future
+        List<Future<?>> chunks = new ArrayList<>();
+        long deadline = System.nanoTime() + TimeUnit.HOURS.toNanos(1);
+        boolean closed;
+        try {
+            long lastId = 0;
+            List<Hotel> chunk;
+            while (!(chunk = hotelService.listAfter(lastId, properties.getChunkSize())).isEmpty()) {
+                lastId = chunk.get(chunk.size() - 1).getId();
+                List<Hotel> hotels = chunk;
+                chunks.add(executor.submit(() -> {
+                    for (Hotel hotel : hotels) {
+                        HotelDoc hotelDoc = new HotelDoc(hotel);
+                        processor.add(new IndexRequest(index)
+                                .id(hotel.getId().toString())
+                                .create(true)
+                                .source(JSON.toJSONString(hotelDoc), XContentType.JSON));
+                    }
+                }));
+            }
+            for (Future<?> future : chunks) {
+                try {
+                    future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("converting a chunk for " + index + " failed", e.getCause());
+                } catch (TimeoutException e) {
+                    throw new IllegalStateException("converting chunks for " + index + " timed out", e);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+            closed = processor.awaitClose(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        }
+        if (!closed) {
+            throw new IllegalStateException("bulk requests into " + index + " did not finish in time");
+        }
+        log.info("loaded {} docs into {}, {} failed", indexed.get(), index, failures.get());
+        return failures.get();
+    }
+
+    /**
+     * @return the indices the alias pointed to before the swap
+     */
+    private Set<String> swapAlias(String index) throws IOException {
+        IndicesAliasesRequest request = new IndicesAliasesRequest();
+
+        Set<String> oldIndices = client.indices()
+                .getAlias(new GetAliasesRequest(INDEX_NAME), RequestOptions.DEFAULT)
+                .getAliases().keySet();
+        if (oldIndices.isEmpty() && client.indices().exists(new GetIndexRequest(INDEX_NAME), RequestOptions.DEFAULT)) {
+            // first run: "hotel" is still a concrete index and is replaced by the alias
+            request.addAliasAction(IndicesAliasesRequest.AliasActions.removeIndex().index(INDEX_NAME));
+        }
+        for (String oldIndex : oldIndices) {
+            request.addAliasAction(IndicesAliasesRequest.AliasActions.remove().index(oldIndex).alias(INDEX_NAME));
+        }
+        request.addAliasAction(IndicesAliasesRequest.AliasActions.add().index(index).alias(INDEX_NAME));
+        // in the same request, so no mirrored write is missed between the two
+        request.addAliasAction(IndicesAliasesRequest.AliasActions.remove().index(index).alias(ReindexWriteAlias.NAME));
+        client.indices().updateAliases(request, RequestOptions.DEFAULT);
+        log.info("alias {} now points to {}", INDEX_NAME, index);
+        return oldIndices;
+    }
+}
@@ -0,0 +1,29 @@
+package cn.itcast.hotel.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * Starts a full rebuild of the hotel index when the application is launched
+ * with {@code --reindex}.
+ */
+@Slf4j
+@Component
+public class ReindexRunner implements ApplicationRunner {
+
+    @Autowired
+    private HotelReindexer reindexer;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!args.containsOption("reindex")) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        String index = reindexer.reindex();
+        log.info("reindex into {} finished in {} ms", index, System.currentTimeMillis() - start);
+    }
+}
@@ -0,0 +1,96 @@
+package cn.itcast.hotel.index;
+
+import cn.itcast.hotel.config.ReindexProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.admin.indices.alias.get.GetAliasesRequest;
+import org.elasticsearch.action.delete.DeleteRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * While a reindex is loading, the {@code hotel_reindex} alias points at the
+ * index being built, and every instance mirrors its MQ index writes into it,
+ * so changes made during the load are not lost when the {@code hotel} alias
+ * is swapped. Instances notice the alias by polling it every
+ * writeAliasCheckInterval, which the reindexer waits out before reading
+ * tb_hotel.
+ */
+@Slf4j
+@Component
+public class ReindexWriteAlias {
+
+    public static final String NAME = "hotel_reindex";
+
+    @Autowired
+    private RestHighLevelClient client;
+
+    @Autowired
+    private ReindexProperties properties;
+
+    private volatile boolean active;
+
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "hotel-reindex-alias");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = properties.getWriteAliasCheckInterval();
+        scheduler.scheduleWithFixedDelay(this::refresh, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Called by the reindexer on its own instance right after adding the alias.
+     */
+    void markActive() {
+        active = true;
+    }
+
+    private void refresh() {
+        try {
+            active = client.indices().existsAlias(new GetAliasesRequest(NAME), RequestOptions.DEFAULT);
+        } catch (IOException | RuntimeException e) {
+            // keep the last known state until ES answers again
+            log.warn("checking the {} alias failed", NAME, e);
+        }
+    }
+
+    /**
+     * The same write against the index being built. Index requests require
+     * the alias, so a write racing the end of a reindex fails with 404
+     * instead of auto-creating a {@code hotel_reindex} index.
+     */
+    public static DocWriteRequest<?> mirror(DocWriteRequest<?> request) {
+        if (request instanceof IndexRequest) {
+            IndexRequest index = (IndexRequest) request;
+            return new IndexRequest(NAME)
+                    .id(index.id())
+                    .source(index.source(), index.getContentType())
+                    .setRequireAlias(true);
+        }
+        return new DeleteRequest(NAME).id(request.id());
+    }
+}
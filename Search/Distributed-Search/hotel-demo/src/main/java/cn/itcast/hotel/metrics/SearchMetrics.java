@@ -0,0 +1,103 @@
+package cn.itcast.hotel.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.elasticsearch.action.search.SearchResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timers and histograms for the search paths of HotelService, available under
+ * /actuator/metrics/hotel.search.*. Every query is split into phases:
+ * <ul>
+ *     <li>build: building the SearchRequest</li>
+ *     <li>execute: client wall time from sending the request to the parsed response</li>
+ *     <li>took: time ES reports spending on the query</li>
+ *     <li>network: execute minus took, i.e. transport and (de)serialization</li>
+ *     <li>map: turning the response into the result objects</li>
+ * </ul>
+ */
+@Component
+public class SearchMetrics {
+
+    @Autowired
+    private MeterRegistry registry;
+
+    public SearchTrace trace(String operation) {
+        return new SearchTrace(operation);
+    }
+
+    private Timer phaseTimer(String operation, String phase) {
+        return Timer.builder("hotel.search.phase")
+                .tag("operation", operation)
+                .tag("phase", phase)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    public class SearchTrace {
+
+        private final String operation;
+
+        private final long start = System.nanoTime();
+
+        private long mark = start;
+
+        private SearchTrace(String operation) {
+            this.operation = operation;
+        }
+
+        public void built() {
+            lap("build");
+        }
+
+        public void pageDepth(int from) {
+            DistributionSummary.builder("hotel.search.page.depth")
+                    .tag("operation", operation)
+                    .publishPercentileHistogram()
+                    .register(registry)
+                    .record(from);
+        }
+
+        public void executed(SearchResponse response) {
+            long wall = lap("execute");
+            long took = response.getTook().nanos();
+            phaseTimer(operation, "took").record(took, TimeUnit.NANOSECONDS);
+            phaseTimer(operation, "network").record(Math.max(0, wall - took), TimeUnit.NANOSECONDS);
+        }
+
+        public void mapped(int hits) {
+            lap("map");
+            DistributionSummary.builder("hotel.search.hits")
+                    .tag("operation", operation)
+                    .publishPercentileHistogram()
+                    .register(registry)
+                    .record(hits);
+            total("success");
+        }
+
+        public void failed() {
+            total("error");
+        }
+
+        private long lap(String phase) {
+            long now = System.nanoTime();
+            long elapsed = now - mark;
+            mark = now;
+            phaseTimer(operation, phase).record(elapsed, TimeUnit.NANOSECONDS);
+            return elapsed;
+        }
+
+        private void total(String outcome) {
+            Timer.builder("hotel.search.latency")
+                    .tag("operation", operation)
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(registry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package cn.itcast.hotel.mq;
+
+import cn.itcast.hotel.config.IndexerProperties;
+import cn.itcast.hotel.service.IHotelService;
+import com.rabbitmq.client.Channel;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects insert/delete events from the hotel queues and writes them to ES
+ * in a single bulk request per window. Only the latest operation per hotel id
+ * is kept, and a message is acked once every id it carried has been indexed.
+ * <p>
+ * A message with a failed id is requeued until one of its ids has failed
+ * maxAttempts times, then nacked without requeue so it is dead-lettered
+ * instead of looping forever. Attempts are counted per instance.
+ */
+@Slf4j
+@Component
+public class HotelIndexBatcher {
+
+    @Autowired
+    private IHotelService hotelService;
+
+    @Autowired
+    private IndexerProperties properties;
+
+    private final Object flushLock = new Object();
+
+    // hotel id -> true for insert/update, false for delete
+    private Map<Long, Boolean> pendingOps = new LinkedHashMap<>();
+
+    private List<Delivery> pendingDeliveries = new ArrayList<>();
+
+    // hotel id -> consecutive failed flushes, only touched under flushLock
+    private final Map<Long, Integer> failedAttempts = new HashMap<>();
+
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "hotel-index-flusher"));
+        long interval = properties.getFlushInterval();
+        scheduler.scheduleWithFixedDelay(this::flushSafely, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        scheduler.shutdown();
+        // let an in-flight scheduled flush finish before the final one
+        if (!scheduler.awaitTermination(properties.getFlushInterval() + 10_000, TimeUnit.MILLISECONDS)) {
+            log.warn("hotel index flusher did not stop in time");
+        }
+        flushSafely();
+    }
+
+    // an exception escaping a scheduled task cancels all later runs
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("hotel index flush failed", e);
+        }
+    }
+
+    public void submitInsert(Collection<Long> ids, Channel channel, long deliveryTag) {
+        submit(ids, true, channel, deliveryTag);
+    }
+
+    public void submitDelete(Collection<Long> ids, Channel channel, long deliveryTag) {
+        submit(ids, false, channel, deliveryTag);
+    }
+
+    private void submit(Collection<Long> ids, boolean insert, Channel channel, long deliveryTag) {
+        boolean full;
+        synchronized (this) {
+            for (Long id : ids) {
+                pendingOps.put(id, insert);
+            }
+            pendingDeliveries.add(new Delivery(channel, deliveryTag, ids));
+            full = pendingOps.size() >= properties.getBatchSize();
+        }
+        if (full) {
+            flush();
+        }
+    }
+
+    public void flush() {
+        synchronized (flushLock) {
+            Map<Long, Boolean> ops;
+            List<Delivery> deliveries;
+            synchronized (this) {
+                if (pendingDeliveries.isEmpty()) {
+                    return;
+                }
+                ops = pendingOps;
+                deliveries = pendingDeliveries;
+                pendingOps = new LinkedHashMap<>();
+                pendingDeliveries = new ArrayList<>();
+            }
+
+            List<Long> insertIds = new ArrayList<>();
+            List<Long> deleteIds = new ArrayList<>();
+            ops.forEach((id, insert) -> (insert ? insertIds : deleteIds).add(id));
+
+            Set<Long> failed;
+            try {
+                failed = hotelService.bulkSync(insertIds, deleteIds);
+            } catch (RuntimeException e) {
+                log.error("bulk sync of {} hotels failed", ops.size(), e);
+                failed = ops.keySet();
+            }
+
+            int maxAttempts = properties.getMaxAttempts();
+            Set<Long> exhausted = new HashSet<>();
+            for (Long id : ops.keySet()) {
+                if (!failed.contains(id)) {
+                    failedAttempts.remove(id);
+                } else if (failedAttempts.merge(id, 1, Integer::sum) >= maxAttempts) {
+                    exhausted.add(id);
+                }
+            }
+
+            for (Delivery delivery : deliveries) {
+                boolean success = delivery.ids.stream().noneMatch(failed::contains);
+                boolean giveUp = !success && delivery.ids.stream().anyMatch(exhausted::contains);
+                try {
+                    if (success) {
+                        delivery.channel.basicAck(delivery.deliveryTag, false);
+                    } else if (giveUp) {
+                        log.error("dead-lettering delivery {} after {} failed attempts, ids={}",
+                                delivery.deliveryTag, maxAttempts, delivery.ids);
+                        delivery.channel.basicNack(delivery.deliveryTag, false, false);
+                    } else {
+                        delivery.channel.basicNack(delivery.deliveryTag, false, true);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    // e.g. AlreadyClosedException after connection recovery;
+                    // the broker redelivers the message once the channel is gone
+                    log.warn("failed to settle delivery {}", delivery.deliveryTag, e);
+                }
+            }
+            exhausted.forEach(failedAttempts::remove);
+            log.debug("flushed {} inserts and {} deletes, {} failed", insertIds.size(), deleteIds.size(), failed.size());
+        }
+    }
+
+    @AllArgsConstructor
+    private static class Delivery {
+        private final Channel channel;
+        private final long deliveryTag;
+        private final Collection<Long> ids;
+    }
+}
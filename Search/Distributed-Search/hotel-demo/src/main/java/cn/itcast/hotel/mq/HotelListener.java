@@ -1,24 +1,78 @@
 package cn.itcast.hotel.mq;
 
 import cn.itcast.hotel.constants.MqConstants;
-import cn.itcast.hotel.service.IHotelService;
+import com.rabbitmq.client.Channel;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.AmqpHeaders;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A message carries either a single hotel id or, from the coalescing
+ * hotel-admin outbox relay, a list of hotel ids. Anything else is rejected
+ * without requeue (and dead-lettered) instead of being redelivered forever.
+ */
+@Slf4j
 @Component
 public class HotelListener {
 
     @Autowired
-    private IHotelService hotelService;
+    private HotelIndexBatcher indexBatcher;
+
+    @RabbitListener(queues = MqConstants.HOTEL_INSERT_QUEUE, ackMode = "MANUAL")
+    public void listenHotelInsertOrUpdate(@Payload Object payload, Channel channel,
+                                          @Header(AmqpHeaders.DELIVERY_TAG) long deliveryTag) throws IOException {
+        List<Long> ids = toIds(payload);
+        if (ids == null) {
+            reject(payload, channel, deliveryTag);
+            return;
+        }
+        indexBatcher.submitInsert(ids, channel, deliveryTag);
+    }
+
+    @RabbitListener(queues = MqConstants.HOTEL_DELETE_QUEUE, ackMode = "MANUAL")
+    public void listenHotelDelete(@Payload Object payload, Channel channel,
+                                  @Header(AmqpHeaders.DELIVERY_TAG) long deliveryTag) throws IOException {
+        List<Long> ids = toIds(payload);
+        if (ids == null) {
+            reject(payload, channel, deliveryTag);
+            return;
+        }
+        indexBatcher.submitDelete(ids, channel, deliveryTag);
+    }
 
-    @RabbitListener(queues = MqConstants.HOTEL_INSERT_QUEUE)
-    public void listenHotelInsertOrUpdate(Long id) {
-        hotelService.insertById(id);
+    private static void reject(Object payload, Channel channel, long deliveryTag) throws IOException {
+        log.error("rejecting delivery {} with unsupported payload {}: {}", deliveryTag,
+                payload == null ? null : payload.getClass().getName(), payload);
+        channel.basicNack(deliveryTag, false, false);
     }
 
-    @RabbitListener(queues = MqConstants.HOTEL_DELETE_QUEUE)
-    public void listenHotelDelete(Long id) {
-        hotelService.deleteById(id);
+    /**
+     * @return the hotel ids, or null if the payload is neither an id nor a collection of ids
+     */
+    static List<Long> toIds(Object payload) {
+        if (payload instanceof Collection) {
+            List<Long> ids = new ArrayList<>(((Collection<?>) payload).size());
+            for (Object id : (Collection<?>) payload) {
+                if (!(id instanceof Number)) {
+                    return null;
+                }
+                ids.add(((Number) id).longValue());
+            }
+            return ids;
+        }
+        if (payload instanceof Number) {
+            return Collections.singletonList(((Number) payload).longValue());
+        }
+        return null;
     }
 }
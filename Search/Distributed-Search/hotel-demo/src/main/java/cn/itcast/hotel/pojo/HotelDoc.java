@@ -29,6 +29,9 @@ public class HotelDoc {
 
     private List<String> suggestion;
 
+    // hash of the tb_hotel row, compared by HotelReconciler to find stale docs
+    private Long fingerprint;
+
     public HotelDoc(Hotel hotel) {
         this.id = hotel.getId();
         this.name = hotel.getName();
@@ -41,6 +44,7 @@ public class HotelDoc {
         this.business = hotel.getBusiness();
         this.location = hotel.getLatitude() + ", " + hotel.getLongitude();
         this.pic = hotel.getPic();
+        this.isAD = hotel.getIsAD();
         if (this.business.contains("/")) {
             String[] split = this.business.split("/");
             this.suggestion = new ArrayList<>();
@@ -49,5 +53,27 @@ public class HotelDoc {
         } else {
             this.suggestion = Arrays.asList(this.brand, this.business);
         }
+        this.fingerprint = fingerprint(hotel);
+    }
+
+    /**
+     * 64-bit FNV-1a over every column of the row, so any change to it changes the fingerprint.
+     */
+    public static long fingerprint(Hotel hotel) {
+        long hash = 0xcbf29ce484222325L;
+        Object[] columns = {
+                hotel.getId(), hotel.getName(), hotel.getAddress(), hotel.getPrice(), hotel.getScore(),
+                hotel.getBrand(), hotel.getCity(), hotel.getStarName(), hotel.getBusiness(),
+                hotel.getLongitude(), hotel.getLatitude(), hotel.getPic(), hotel.getIsAD()
+        };
+        for (Object column : columns) {
+            String value = String.valueOf(column);
+            for (int i = 0; i < value.length(); i++) {
+                hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+            }
+            // separator, so shifting text between two columns changes the hash
+            hash = (hash ^ 0x1f) * 0x100000001b3L;
+        }
+        return hash;
     }
 }
@@ -8,6 +8,7 @@ import java.util.List;
 public class PageResult {
     private Long total;
     private List<HotelDoc> hotels;
+    private String cursor;
 
     public PageResult() {
     }
@@ -14,4 +14,5 @@ public class RequestParams {
     private Integer minPrice;
     private Integer maxPrice;
     private String location;
+    private String cursor;
 }
@@ -0,0 +1,108 @@
+package cn.itcast.hotel.pojo;
+
+import cn.itcast.hotel.web.exception.InvalidCursorException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Position of a search_after scroll, handed to clients as an opaque string.
+ * <p>
+ * The cursor comes back from clients, so it is decoded with a fixed schema
+ * and no polymorphic typing: every sort value is a string tagged with its
+ * type, {@code l} for long, {@code d} for double, {@code s} for string and
+ * {@code b} for boolean. Anything else is rejected with 400.
+ */
+@Data
+@NoArgsConstructor
+public class SearchCursor {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private Object[] sortValues;
+    private String pitId;
+
+    public SearchCursor(Object[] sortValues, String pitId) {
+        this.sortValues = sortValues;
+        this.pitId = pitId;
+    }
+
+    public String encode() {
+        Wire wire = new Wire();
+        wire.setP(pitId);
+        wire.setV(new ArrayList<>(sortValues.length));
+        for (Object value : sortValues) {
+            wire.getV().add(tag(value));
+        }
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(MAPPER.writeValueAsBytes(wire));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static SearchCursor decode(String cursor) {
+        try {
+            Wire wire = MAPPER.readValue(Base64.getUrlDecoder().decode(cursor), Wire.class);
+            if (wire.getV() == null || wire.getV().isEmpty()) {
+                throw new InvalidCursorException("cursor has no sort values");
+            }
+            Object[] values = new Object[wire.getV().size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = untag(wire.getV().get(i));
+            }
+            return new SearchCursor(values, wire.getP());
+        } catch (InvalidCursorException e) {
+            throw e;
+        } catch (IOException | IllegalArgumentException e) {
+            // bad base64, bad JSON, unknown fields or unparsable numbers
+            throw new InvalidCursorException("malformed cursor");
+        }
+    }
+
+    private static String tag(Object value) {
+        if (value instanceof Long || value instanceof Integer || value instanceof Short) {
+            return "l" + value;
+        }
+        if (value instanceof Double || value instanceof Float) {
+            return "d" + value;
+        }
+        if (value instanceof String) {
+            return "s" + value;
+        }
+        if (value instanceof Boolean) {
+            return "b" + value;
+        }
+        throw new IllegalStateException("unsupported sort value type: " + (value == null ? null : value.getClass()));
+    }
+
+    private static Object untag(String tagged) {
+        if (tagged == null || tagged.isEmpty()) {
+            throw new InvalidCursorException("empty sort value");
+        }
+        String value = tagged.substring(1);
+        switch (tagged.charAt(0)) {
+            case 'l':
+                return Long.parseLong(value);
+            case 'd':
+                return Double.parseDouble(value);
+            case 's':
+                return value;
+            case 'b':
+                return Boolean.parseBoolean(value);
+            default:
+                throw new InvalidCursorException("unknown sort value type");
+        }
+    }
+
+    @Data
+    private static class Wire {
+        private List<String> v;
+        private String p;
+    }
+}
@@ -0,0 +1,20 @@
+package cn.itcast.hotel.pojo;
+
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+public class SearchResult {
+    private PageResult page;
+    private Map<String, List<String>> filters;
+
+    public SearchResult() {
+    }
+
+    public SearchResult(PageResult page, Map<String, List<String>> filters) {
+        this.page = page;
+        this.filters = filters;
+    }
+}
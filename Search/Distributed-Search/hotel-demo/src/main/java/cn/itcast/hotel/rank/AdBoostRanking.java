@@ -0,0 +1,28 @@
+package cn.itcast.hotel.rank;
+
+import cn.itcast.hotel.config.RankingProperties;
+import cn.itcast.hotel.pojo.RequestParams;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.index.query.functionscore.FunctionScoreQueryBuilder.FilterFunctionBuilder;
+import org.elasticsearch.index.query.functionscore.ScoreFunctionBuilders;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+@Component
+public class AdBoostRanking implements HotelRankingFunction {
+
+    @Autowired
+    private RankingProperties rankingProperties;
+
+    @Override
+    public FilterFunctionBuilder build(RequestParams params) {
+        float weight = rankingProperties.getAdWeight();
+        if (weight <= 0) {
+            return null;
+        }
+        // the isAD term is a filter, so its matches are cached per segment like the bool filters
+        return new FilterFunctionBuilder(
+                QueryBuilders.termQuery("isAD", true),
+                ScoreFunctionBuilders.weightFactorFunction(weight));
+    }
+}
@@ -0,0 +1,45 @@
+package cn.itcast.hotel.rank;
+
+import cn.itcast.hotel.pojo.RequestParams;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.index.query.functionscore.FunctionScoreQueryBuilder.FilterFunctionBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Wraps a query in function_score with the functions of every
+ * {@link HotelRankingFunction} bean. The wrapped query is left as is, so its
+ * filter clauses keep running in filter context and stay cacheable.
+ */
+@Component
+public class HotelRanking {
+
+    @Autowired(required = false)
+    private List<HotelRankingFunction> functions = Collections.emptyList();
+
+    public HotelRanking() {
+    }
+
+    public HotelRanking(List<HotelRankingFunction> functions) {
+        this.functions = functions;
+    }
+
+    public QueryBuilder apply(QueryBuilder query, RequestParams params) {
+        List<FilterFunctionBuilder> filterFunctions = new ArrayList<>(functions.size());
+        for (HotelRankingFunction function : functions) {
+            FilterFunctionBuilder filterFunction = function.build(params);
+            if (filterFunction != null) {
+                filterFunctions.add(filterFunction);
+            }
+        }
+        if (filterFunctions.isEmpty()) {
+            return query;
+        }
+        return QueryBuilders.functionScoreQuery(query, filterFunctions.toArray(new FilterFunctionBuilder[0]));
+    }
+}
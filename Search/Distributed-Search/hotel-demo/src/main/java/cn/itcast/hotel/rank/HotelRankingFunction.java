@@ -0,0 +1,16 @@
+package cn.itcast.hotel.rank;
+
+import cn.itcast.hotel.pojo.RequestParams;
+import org.elasticsearch.index.query.functionscore.FunctionScoreQueryBuilder.FilterFunctionBuilder;
+
+/**
+ * One stage of hotel ranking. Every bean of this type contributes a function
+ * to the function_score query wrapped around relevance sorted searches.
+ */
+public interface HotelRankingFunction {
+
+    /**
+     * @return the function for this request, or null to leave the ranking untouched
+     */
+    FilterFunctionBuilder build(RequestParams params);
+}
@@ -0,0 +1,25 @@
+package cn.itcast.hotel.rank;
+
+import cn.itcast.hotel.config.RankingProperties;
+import cn.itcast.hotel.pojo.RequestParams;
+import org.elasticsearch.index.query.functionscore.FunctionScoreQueryBuilder.FilterFunctionBuilder;
+import org.elasticsearch.index.query.functionscore.ScoreFunctionBuilders;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+@Component
+public class PriceDecayRanking implements HotelRankingFunction {
+
+    @Autowired
+    private RankingProperties rankingProperties;
+
+    @Override
+    public FilterFunctionBuilder build(RequestParams params) {
+        int scale = rankingProperties.getPriceDecayScale();
+        if (scale <= 0) {
+            return null;
+        }
+        int origin = params.getMinPrice() != null ? params.getMinPrice() : 0;
+        return new FilterFunctionBuilder(ScoreFunctionBuilders.gaussDecayFunction("price", origin, scale));
+    }
+}
@@ -0,0 +1,27 @@
+package cn.itcast.hotel.rank;
+
+import cn.itcast.hotel.config.RankingProperties;
+import cn.itcast.hotel.pojo.RequestParams;
+import org.elasticsearch.common.lucene.search.function.FieldValueFactorFunction;
+import org.elasticsearch.index.query.functionscore.FunctionScoreQueryBuilder.FilterFunctionBuilder;
+import org.elasticsearch.index.query.functionscore.ScoreFunctionBuilders;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+@Component
+public class ScoreRanking implements HotelRankingFunction {
+
+    @Autowired
+    private RankingProperties rankingProperties;
+
+    @Override
+    public FilterFunctionBuilder build(RequestParams params) {
+        if (!rankingProperties.isScoreFactor()) {
+            return null;
+        }
+        return new FilterFunctionBuilder(ScoreFunctionBuilders
+                .fieldValueFactorFunction("score")
+                .modifier(FieldValueFactorFunction.Modifier.LOG1P)
+                .missing(1));
+    }
+}
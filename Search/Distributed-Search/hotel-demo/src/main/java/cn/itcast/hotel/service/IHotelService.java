@@ -3,20 +3,38 @@ package cn.itcast.hotel.service;
 import cn.itcast.hotel.pojo.Hotel;
 import cn.itcast.hotel.pojo.PageResult;
 import cn.itcast.hotel.pojo.RequestParams;
+import cn.itcast.hotel.pojo.SearchResult;
 import com.baomidou.mybatisplus.extension.service.IService;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 public interface IHotelService extends IService<Hotel> {
     PageResult search(RequestParams requestParams);
 
+    SearchResult searchWithFilters(RequestParams requestParams);
+
+    PageResult searchAfter(RequestParams requestParams);
+
     Map<String, List<String>> filter(RequestParams requestParams);
 
     List<String> getSuggestion(String key);
 
+    CompletableFuture<PageResult> searchAsync(RequestParams requestParams);
+
+    CompletableFuture<Map<String, List<String>>> filterAsync(RequestParams requestParams);
+
+    CompletableFuture<List<String>> getSuggestionAsync(String key);
+
     void insertById(Long id);
 
     void deleteById(Long id);
+
+    Set<Long> bulkSync(Collection<Long> insertIds, Collection<Long> deleteIds);
+
+    List<Hotel> listAfter(Long lastId, int limit);
 }
 
@@ -1,28 +1,48 @@
 package cn.itcast.hotel.service.impl;
 
+import cn.itcast.hotel.config.SearchProperties;
+import cn.itcast.hotel.index.ReindexWriteAlias;
 import cn.itcast.hotel.mapper.HotelMapper;
+import cn.itcast.hotel.metrics.SearchMetrics;
+import cn.itcast.hotel.metrics.SearchMetrics.SearchTrace;
 import cn.itcast.hotel.pojo.Hotel;
 import cn.itcast.hotel.pojo.HotelDoc;
 import cn.itcast.hotel.pojo.PageResult;
 import cn.itcast.hotel.pojo.RequestParams;
+import cn.itcast.hotel.pojo.SearchCursor;
+import cn.itcast.hotel.pojo.SearchResult;
+import cn.itcast.hotel.rank.HotelRanking;
 import cn.itcast.hotel.service.IHotelService;
+import cn.itcast.hotel.suggest.HotelSuggestionIndex;
+import cn.itcast.hotel.web.exception.InvalidCursorException;
 import com.alibaba.fastjson.JSON;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
 import org.apache.logging.log4j.util.StringBuilders;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.ElasticsearchStatusException;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
 import org.elasticsearch.action.delete.DeleteRequest;
 import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.search.ClosePointInTimeRequest;
+import org.elasticsearch.action.search.OpenPointInTimeRequest;
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.client.RequestOptions;
 import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.client.core.CountRequest;
 import org.elasticsearch.common.geo.GeoPoint;
 import org.elasticsearch.common.unit.DistanceUnit;
+import org.elasticsearch.core.TimeValue;
 import org.elasticsearch.index.query.BoolQueryBuilder;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
-import org.elasticsearch.index.query.functionscore.FunctionScoreQueryBuilder;
-import org.elasticsearch.index.query.functionscore.ScoreFunctionBuilder;
-import org.elasticsearch.index.query.functionscore.ScoreFunctionBuilders;
+import org.elasticsearch.rest.RestStatus;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.SearchHits;
 import org.elasticsearch.search.aggregations.Aggregation;
@@ -30,6 +50,7 @@ import org.elasticsearch.search.aggregations.AggregationBuilder;
 import org.elasticsearch.search.aggregations.AggregationBuilders;
 import org.elasticsearch.search.aggregations.Aggregations;
 import org.elasticsearch.search.aggregations.bucket.terms.Terms;
+import org.elasticsearch.search.builder.PointInTimeBuilder;
 import org.elasticsearch.search.fetch.subphase.highlight.HighlightField;
 import org.elasticsearch.search.sort.SortBuilders;
 import org.elasticsearch.search.sort.SortOrder;
@@ -44,17 +65,50 @@ import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static cn.itcast.hotel.constants.HotelConstants.LIST_FIELDS;
 
 @Service
 public class HotelService extends ServiceImpl<HotelMapper, Hotel> implements IHotelService {
 
+    private static final int SUGGESTION_SIZE = 10;
+
     @Autowired
     private RestHighLevelClient client;
 
+    @Autowired
+    private SearchProperties searchProperties;
+
+    @Autowired
+    private Cache<List<Object>, Map<String, List<String>>> filterCache;
+
+    @Autowired
+    private AsyncCache<List<Object>, Map<String, List<String>>> filterAsyncCache;
+
+    @Autowired
+    private HotelSuggestionIndex suggestionIndex;
+
+    @Autowired
+    private SearchMetrics searchMetrics;
+
+    @Autowired
+    private HotelRanking hotelRanking;
+
+    @Autowired
+    private ReindexWriteAlias reindexWriteAlias;
+
     @Override
     public void insertById(Long id) {
         try {
@@ -67,6 +121,8 @@ public class HotelService extends ServiceImpl<HotelMapper, Hotel> implements IHo
             request.source(JSON.toJSONString(hotelDoc), XContentType.JSON);
 
             client.index(request, RequestOptions.DEFAULT);
+            filterCache.invalidateAll();
+            suggestionIndex.update(Collections.singletonList(hotelDoc));
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -77,38 +133,216 @@ public class HotelService extends ServiceImpl<HotelMapper, Hotel> implements IHo
         try {
             DeleteRequest request = new DeleteRequest("hotel").id(id.toString());
             client.delete(request, RequestOptions.DEFAULT);
+            filterCache.invalidateAll();
+            suggestionIndex.remove(Collections.singletonList(id));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public Set<Long> bulkSync(Collection<Long> insertIds, Collection<Long> deleteIds) {
+        if (insertIds.isEmpty() && deleteIds.isEmpty()) {
+            return Collections.emptySet();
+        }
+        try {
+            BulkRequest request = new BulkRequest();
+
+            List<HotelDoc> hotelDocs = new ArrayList<>();
+            Set<Long> missing = new HashSet<>(insertIds);
+            if (!insertIds.isEmpty()) {
+                for (Hotel hotel : listByIds(insertIds)) {
+                    missing.remove(hotel.getId());
+                    HotelDoc hotelDoc = new HotelDoc(hotel);
+                    hotelDocs.add(hotelDoc);
+                    request.add(new IndexRequest("hotel")
+                            .id(hotel.getId().toString())
+                            .source(JSON.toJSONString(hotelDoc), XContentType.JSON));
+                }
+            }
+            // rows removed from MySQL after the insert event was published
+            for (Long id : missing) {
+                request.add(new DeleteRequest("hotel").id(id.toString()));
+            }
+            for (Long id : deleteIds) {
+                request.add(new DeleteRequest("hotel").id(id.toString()));
+            }
+            // a reindex is loading: write the same changes into the new index too
+            int primaryActions = request.numberOfActions();
+            if (reindexWriteAlias.isActive()) {
+                for (DocWriteRequest<?> write : new ArrayList<>(request.requests())) {
+                    request.add(ReindexWriteAlias.mirror(write));
+                }
+            }
+
+            BulkResponse response = client.bulk(request, RequestOptions.DEFAULT);
+            // any indexed or deleted hotel can change the facets of any query
+            filterCache.invalidateAll();
+
+            Set<Long> failed = new HashSet<>();
+            if (response.hasFailures()) {
+                BulkItemResponse[] items = response.getItems();
+                for (int i = 0; i < items.length; i++) {
+                    BulkItemResponse item = items[i];
+                    // a mirrored write is not found once the reindex has swapped or been dropped
+                    boolean aliasGone = i >= primaryActions && item.isFailed()
+                            && item.getFailure().getStatus() == RestStatus.NOT_FOUND;
+                    if (item.isFailed() && !aliasGone) {
+                        failed.add(Long.valueOf(item.getId()));
+                    }
+                }
+            }
+
+            hotelDocs.removeIf(hotelDoc -> failed.contains(hotelDoc.getId()));
+            suggestionIndex.update(hotelDocs);
+            List<Long> removed = new ArrayList<>(missing);
+            removed.addAll(deleteIds);
+            removed.removeAll(failed);
+            suggestionIndex.remove(removed);
+
+            return failed;
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
+    @Override
+    public List<Hotel> listAfter(Long lastId, int limit) {
+        return lambdaQuery()
+                .gt(Hotel::getId, lastId)
+                .orderByAsc(Hotel::getId)
+                .last("limit " + limit)
+                .list();
+    }
+
     @Override
     public List<String> getSuggestion(String key) {
+        List<String> local = suggestionIndex.suggest(key, SUGGESTION_SIZE);
+        if (!needsRemoteSuggestions(key, local)) {
+            return local;
+        }
         try {
-            SearchRequest request = new SearchRequest("hotel");
+            SearchTrace trace = searchMetrics.trace("suggestion");
 
-            request.source().suggest(new SuggestBuilder().addSuggestion(
-                    "suggestion",
-                    SuggestBuilders.completionSuggestion("suggestion")
-                            .prefix(key)
-                            .skipDuplicates(true)
-                            .size(10)
-            ));
+            SearchRequest request = buildSuggestionRequest(key);
 
-            SearchResponse response = client.search(request, RequestOptions.DEFAULT);
+            SearchResponse response = execute(request, trace);
+
+            List<String> result = mergeSuggestions(local, handleSuggestion(response));
+            trace.mapped(result.size());
+            return result;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<List<String>> getSuggestionAsync(String key) {
+        List<String> local = suggestionIndex.suggest(key, SUGGESTION_SIZE);
+        if (!needsRemoteSuggestions(key, local)) {
+            return CompletableFuture.completedFuture(local);
+        }
+        SearchTrace trace = searchMetrics.trace("suggestion");
+        return executeAsync(buildSuggestionRequest(key), trace).thenApply(response -> {
+            List<String> result = mergeSuggestions(local, handleSuggestion(response));
+            trace.mapped(result.size());
+            return result;
+        });
+    }
+
+    /**
+     * The trie only matches the literal terms, so Elasticsearch is asked when
+     * it has nothing (a miss, or not built yet) or when the key has latin
+     * letters, which may be pinyin that only the completion analyzer matches.
+     */
+    private static boolean needsRemoteSuggestions(String key, List<String> local) {
+        if (local.isEmpty()) {
+            return true;
+        }
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Trie terms first, then completion suggestions (which also match pinyin)
+     * that the trie did not already return, up to SUGGESTION_SIZE.
+     */
+    private static List<String> mergeSuggestions(List<String> local, List<String> remote) {
+        if (local.isEmpty()) {
+            return remote;
+        }
+        Set<String> seen = new HashSet<>();
+        List<String> result = new ArrayList<>(SUGGESTION_SIZE);
+        for (String term : local) {
+            seen.add(term.toLowerCase(Locale.ROOT));
+            result.add(term);
+        }
+        for (String term : remote) {
+            if (result.size() >= SUGGESTION_SIZE) {
+                break;
+            }
+            if (seen.add(term.toLowerCase(Locale.ROOT))) {
+                result.add(term);
+            }
+        }
+        return result;
+    }
+
+    private static SearchRequest buildSuggestionRequest(String key) {
+        SearchRequest request = new SearchRequest("hotel");
+
+        request.source().suggest(new SuggestBuilder().addSuggestion(
+                "suggestion",
+                SuggestBuilders.completionSuggestion("suggestion")
+                        .prefix(key)
+                        .skipDuplicates(true)
+                        .size(SUGGESTION_SIZE)
+        ));
+        return request;
+    }
+
+    private static List<String> handleSuggestion(SearchResponse response) {
+        Suggest suggest = response.getSuggest();
 
-            Suggest suggest = response.getSuggest();
+        CompletionSuggestion suggestions = suggest.getSuggestion("suggestion");
 
-            CompletionSuggestion suggestions = suggest.getSuggestion("suggestion");
+        List<CompletionSuggestion.Entry.Option> options = suggestions.getOptions();
 
-            List<CompletionSuggestion.Entry.Option> options = suggestions.getOptions();
+        List<String> result = new ArrayList<>();
 
-            List<String> result = new ArrayList<>();
+        for (CompletionSuggestion.Entry.Option option : options) {
+            String text = option.getText().toString();
+            result.add(text);
+        }
+        return result;
+    }
+
+    @Override
+    public PageResult search(RequestParams requestParams) {
 
-            for (CompletionSuggestion.Entry.Option option : options) {
-                String text = option.getText().toString();
-                result.add(text);
+        try {
+            SearchTrace trace = searchMetrics.trace("list");
+
+            SearchResponse response;
+            if (isGeoSort(requestParams)) {
+                trace.pageDepth((requestParams.getPage() - 1) * requestParams.getSize());
+                response = searchNearby(requestParams, trace);
+            } else {
+                SearchRequest request = buildSearchRequest(requestParams, null);
+                trace.pageDepth(request.source().from());
+                response = execute(request, trace);
             }
+
+            PageResult result = handleResponse(response, isGeoSort(requestParams));
+            if (isGeoSort(requestParams)) {
+                result.setTotal(client.count(buildCountRequest(requestParams), RequestOptions.DEFAULT).getCount());
+            }
+            trace.mapped(result.getHotels().size());
             return result;
         } catch (IOException e) {
             throw new RuntimeException(e);
@@ -116,65 +350,350 @@ public class HotelService extends ServiceImpl<HotelMapper, Hotel> implements IHo
     }
 
     @Override
-    public PageResult search(RequestParams requestParams) {
+    public CompletableFuture<PageResult> searchAsync(RequestParams requestParams) {
+        SearchTrace trace = searchMetrics.trace("list");
+        boolean geoSort = isGeoSort(requestParams);
+
+        if (geoSort) {
+            trace.pageDepth((requestParams.getPage() - 1) * requestParams.getSize());
+            // the count runs alongside the rings, it does not depend on them
+            CompletableFuture<Long> total = countAsync(buildCountRequest(requestParams));
+            return searchNearbyAsync(requestParams, trace, searchProperties.getNearbyInitialRadius())
+                    .thenCombine(total, (response, count) -> {
+                        PageResult result = handleResponse(response, true);
+                        result.setTotal(count);
+                        trace.mapped(result.getHotels().size());
+                        return result;
+                    });
+        }
+
+        SearchRequest request = buildSearchRequest(requestParams, null);
+        trace.pageDepth(request.source().from());
+        return executeAsync(request, trace).thenApply(response -> {
+            PageResult result = handleResponse(response, false);
+            trace.mapped(result.getHotels().size());
+            return result;
+        });
+    }
+
+    @Override
+    public SearchResult searchWithFilters(RequestParams requestParams) {
+        List<Object> cacheKey = filterCacheKey(requestParams);
+        Map<String, List<String>> filters = filterCache.getIfPresent(cacheKey);
+        if (filters != null) {
+            return new SearchResult(search(requestParams), filters);
+        }
+
+        try {
+            // aggregations run over the whole match set, independent of paging and sorting,
+            // so the page and the facets come out of the same query
+            SearchTrace trace = searchMetrics.trace("search");
+
+            SearchRequest request = buildSearchRequest(requestParams, null);
+            trace.pageDepth(request.source().from());
+
+            buildAggregation(request);
 
+            SearchResponse response = execute(request, trace);
+
+            filters = handleAggregations(response.getAggregations());
+            filterCache.put(cacheKey, filters);
+
+            PageResult page = handleResponse(response, isGeoSort(requestParams));
+            trace.mapped(page.getHotels().size());
+            return new SearchResult(page, filters);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public PageResult searchAfter(RequestParams requestParams) {
         try {
-            SearchRequest request = new SearchRequest("hotel");
+            SearchTrace trace = searchMetrics.trace("scroll");
+
+            SearchCursor cursor = requestParams.getCursor() == null || requestParams.getCursor().isEmpty()
+                    ? null : SearchCursor.decode(requestParams.getCursor());
+
+            String pitId = cursor != null ? cursor.getPitId() : null;
+            if (cursor == null && searchProperties.isPointInTime()) {
+                OpenPointInTimeRequest pitRequest = new OpenPointInTimeRequest("hotel")
+                        .keepAlive(TimeValue.parseTimeValue(searchProperties.getPointInTimeKeepAlive(), "keep_alive"));
+                pitId = client.openPointInTime(pitRequest, RequestOptions.DEFAULT).getPointInTimeId();
+            }
 
+            SearchRequest request = pitId != null ? new SearchRequest() : new SearchRequest("hotel");
             // 1. query
             buildBasicQuery(requestParams, request);
-            // 2. paginate
-            int page = requestParams.getPage();
-            int size = requestParams.getSize();
-            request.source().from((page - 1) * size).size(size);
-            // 3. sort
-            String location = requestParams.getLocation();
-            if (location != null && !location.equals("")) {
+            request.source().fetchSource(LIST_FIELDS, null);
+            // 2. sort, the id tiebreak makes the order total so no hit is skipped or repeated
+            boolean geoSort = isGeoSort(requestParams);
+            if (geoSort) {
                 request.source().sort(SortBuilders
-                        .geoDistanceSort("location", new GeoPoint(location))
-                        .order(SortOrder.DESC)
+                        .geoDistanceSort("location", new GeoPoint(requestParams.getLocation()))
+                        .order(SortOrder.ASC)
                         .unit(DistanceUnit.KILOMETERS));
+            } else {
+                request.source().query(hotelRanking.apply(request.source().query(), requestParams));
+                request.source().sort(SortBuilders.scoreSort());
+            }
+            request.source().sort(SortBuilders.fieldSort("id").order(SortOrder.ASC));
+            // 3. paginate
+            int size = requestParams.getSize();
+            request.source().size(size);
+            if (cursor != null) {
+                request.source().searchAfter(cursor.getSortValues());
+            }
+            if (pitId != null) {
+                request.source().pointInTimeBuilder(new PointInTimeBuilder(pitId)
+                        .setKeepAlive(searchProperties.getPointInTimeKeepAlive()));
             }
 
-            SearchResponse response = client.search(request, RequestOptions.DEFAULT);
+            SearchResponse response;
+            try {
+                response = execute(request, trace);
+            } catch (ElasticsearchStatusException e) {
+                // the point in time of the cursor outlived its keep-alive
+                if (cursor != null && pitId != null && e.status() == RestStatus.NOT_FOUND
+                        && isSearchContextMissing(e)) {
+                    throw new InvalidCursorException("cursor expired, restart paging without a cursor");
+                }
+                throw e;
+            }
+
+            PageResult result = handleResponse(response, geoSort);
+            trace.mapped(result.getHotels().size());
 
-            return handleResponse(response);
+            SearchHit[] hits = response.getHits().getHits();
+            if (response.pointInTimeId() != null) {
+                pitId = response.pointInTimeId();
+            }
+            if (hits.length < size) {
+                // last page, nothing to resume from
+                if (pitId != null) {
+                    client.closePointInTime(new ClosePointInTimeRequest(pitId), RequestOptions.DEFAULT);
+                }
+            } else {
+                result.setCursor(new SearchCursor(hits[hits.length - 1].getSortValues(), pitId).encode());
+            }
+            return result;
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
-    @Override
-    public Map<String, List<String>> filter(RequestParams params) {
-        try {
-            SearchRequest request = new SearchRequest("hotel");
+    // the reason sits in the root causes, which the client keeps as suppressed exceptions
+    private static boolean isSearchContextMissing(Throwable e) {
+        if (e == null) {
+            return false;
+        }
+        if (String.valueOf(e.getMessage()).contains("search_context_missing_exception")) {
+            return true;
+        }
+        for (Throwable suppressed : e.getSuppressed()) {
+            if (isSearchContextMissing(suppressed)) {
+                return true;
+            }
+        }
+        return e.getCause() != e && isSearchContextMissing(e.getCause());
+    }
 
-            buildBasicQuery(params, request);
+    /**
+     * Nearby search: instead of sorting every hotel that matches by distance,
+     * only the hotels within a radius around the location are matched, and the
+     * radius grows until it holds the requested page. Hits are sorted nearest
+     * first, so the first n hits within any radius holding n hotels are the
+     * nearest n overall. The hit total only counts the hotels within the
+     * radius, so callers take the page total from a separate count request.
+     */
+    private SearchResponse searchNearby(RequestParams requestParams, SearchTrace trace) throws IOException {
+        double radius = searchProperties.getNearbyInitialRadius();
+        while (true) {
+            SearchRequest request = buildSearchRequest(requestParams, nearbyFilter(requestParams, radius));
+            SearchResponse response = execute(request, trace);
+            if (nearbyComplete(requestParams, response, radius)) {
+                return response;
+            }
+            radius *= searchProperties.getNearbyExpandFactor();
+        }
+    }
 
-            request.source().size(0);
+    private CompletableFuture<SearchResponse> searchNearbyAsync(RequestParams requestParams, SearchTrace trace,
+                                                                double radius) {
+        SearchRequest request = buildSearchRequest(requestParams, nearbyFilter(requestParams, radius));
+        return executeAsync(request, trace).thenCompose(response -> nearbyComplete(requestParams, response, radius)
+                ? CompletableFuture.completedFuture(response)
+                : searchNearbyAsync(requestParams, trace, radius * searchProperties.getNearbyExpandFactor()));
+    }
 
-            buildAggregation(request);
+    /**
+     * Counts every hotel matching the request, ignoring the nearby radius.
+     */
+    private static CountRequest buildCountRequest(RequestParams requestParams) {
+        SearchRequest request = new SearchRequest("hotel");
+        buildBasicQuery(requestParams, request);
+        return new CountRequest("hotel").query(request.source().query());
+    }
 
-            SearchResponse response = client.search(request, RequestOptions.DEFAULT);
+    private CompletableFuture<Long> countAsync(CountRequest request) {
+        CompletableFuture<Long> future = new CompletableFuture<>();
+        client.countAsync(request, RequestOptions.DEFAULT, ActionListener.wrap(
+                response -> future.complete(response.getCount()), future::completeExceptionally));
+        return future;
+    }
+
+    private QueryBuilder nearbyFilter(RequestParams requestParams, double radius) {
+        if (radius > searchProperties.getNearbyMaxRadius()) {
+            // past the largest ring, fall back to sorting every match
+            return null;
+        }
+        return QueryBuilders.geoDistanceQuery("location")
+                .point(new GeoPoint(requestParams.getLocation()))
+                .distance(radius, DistanceUnit.KILOMETERS);
+    }
+
+    private boolean nearbyComplete(RequestParams requestParams, SearchResponse response, double radius) {
+        long wanted = (long) requestParams.getPage() * requestParams.getSize();
+        return radius > searchProperties.getNearbyMaxRadius()
+                || response.getHits().getTotalHits().value >= wanted;
+    }
 
-            Map<String, List<String>> result = new HashMap<>();
-            Aggregations aggregations = response.getAggregations();
+    private SearchRequest buildSearchRequest(RequestParams requestParams, QueryBuilder extraFilter) {
+        SearchRequest request = new SearchRequest("hotel");
+
+        // 1. query
+        buildBasicQuery(requestParams, request, extraFilter);
+        request.source().fetchSource(LIST_FIELDS, null);
+        // 2. paginate
+        int page = requestParams.getPage();
+        int size = requestParams.getSize();
+        request.source().from((page - 1) * size).size(size);
+        // 3. sort, ranking only matters when hits are ordered by score
+        if (isGeoSort(requestParams)) {
+            request.source().sort(SortBuilders
+                    .geoDistanceSort("location", new GeoPoint(requestParams.getLocation()))
+                    .order(SortOrder.ASC)
+                    .unit(DistanceUnit.KILOMETERS));
+        } else {
+            request.source().query(hotelRanking.apply(request.source().query(), requestParams));
+        }
+        return request;
+    }
 
-            List<String> brandList = getAggByName(aggregations, "brandAgg");
-            result.put("brand", brandList);
+    @Override
+    public Map<String, List<String>> filter(RequestParams params) {
+        return filterCache.get(filterCacheKey(params), key -> queryFilters(params));
+    }
+
+    @Override
+    public CompletableFuture<Map<String, List<String>>> filterAsync(RequestParams params) {
+        return filterAsyncCache.get(filterCacheKey(params), (key, executor) -> {
+            SearchTrace trace = searchMetrics.trace("filters");
+            return executeAsync(buildFilterRequest(params), trace).thenApply(response -> {
+                Map<String, List<String>> result = handleAggregations(response.getAggregations());
+                trace.mapped(result.values().stream().mapToInt(List::size).sum());
+                return result;
+            });
+        });
+    }
+
+    private Map<String, List<String>> queryFilters(RequestParams params) {
+        try {
+            SearchTrace trace = searchMetrics.trace("filters");
 
-            List<String> cityList = getAggByName(aggregations, "cityAgg");
-            result.put("city", cityList);
+            SearchRequest request = buildFilterRequest(params);
 
-            List<String> starList = getAggByName(aggregations, "starNameAgg");
-            result.put("starName", starList);
+            SearchResponse response = execute(request, trace);
 
+            Map<String, List<String>> result = handleAggregations(response.getAggregations());
+            trace.mapped(result.values().stream().mapToInt(List::size).sum());
             return result;
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
+    private static SearchRequest buildFilterRequest(RequestParams params) {
+        SearchRequest request = new SearchRequest("hotel");
+
+        buildBasicQuery(params, request);
+
+        request.source().size(0);
+
+        buildAggregation(request);
+        return request;
+    }
+
+    private SearchResponse execute(SearchRequest request, SearchTrace trace) throws IOException {
+        trace.built();
+        try {
+            SearchResponse response = client.search(request, RequestOptions.DEFAULT);
+            trace.executed(response);
+            return response;
+        } catch (IOException | RuntimeException e) {
+            trace.failed();
+            throw e;
+        }
+    }
+
+    /**
+     * Sends the request without holding the calling thread, the future completes
+     * on the client's I/O threads.
+     */
+    private CompletableFuture<SearchResponse> executeAsync(SearchRequest request, SearchTrace trace) {
+        trace.built();
+        CompletableFuture<SearchResponse> future = new CompletableFuture<>();
+        client.searchAsync(request, RequestOptions.DEFAULT, ActionListener.wrap(response -> {
+            trace.executed(response);
+            future.complete(response);
+        }, e -> {
+            trace.failed();
+            future.completeExceptionally(e);
+        }));
+        return future;
+    }
+
+    private static boolean isGeoSort(RequestParams requestParams) {
+        String location = requestParams.getLocation();
+        return location != null && !location.equals("");
+    }
+
+    private static Map<String, List<String>> handleAggregations(Aggregations aggregations) {
+        Map<String, List<String>> result = new HashMap<>();
+
+        List<String> brandList = getAggByName(aggregations, "brandAgg");
+        result.put("brand", brandList);
+
+        List<String> cityList = getAggByName(aggregations, "cityAgg");
+        result.put("city", cityList);
+
+        List<String> starList = getAggByName(aggregations, "starNameAgg");
+        result.put("starName", starList);
+
+        return result;
+    }
+
+    /**
+     * Only the fields used by buildBasicQuery take part in the key, so requests
+     * differing in paging, sorting or location share the same facets.
+     */
+    private static List<Object> filterCacheKey(RequestParams params) {
+        // the key goes through an analyzer, surrounding whitespace does not change the hits
+        String key = params.getKey() == null ? "" : params.getKey().trim();
+        boolean priceRange = params.getMinPrice() != null && params.getMaxPrice() != null;
+        return Arrays.asList(
+                key,
+                nullToEmpty(params.getCity()),
+                nullToEmpty(params.getBrand()),
+                nullToEmpty(params.getStarName()),
+                priceRange ? params.getMinPrice() : null,
+                priceRange ? params.getMaxPrice() : null);
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+
     private static List<String> getAggByName(Aggregations aggregations, String aggName) {
         Terms brandTerms = aggregations.get(aggName);
 
@@ -204,6 +723,10 @@ public class HotelService extends ServiceImpl<HotelMapper, Hotel> implements IHo
     }
 
     private static void buildBasicQuery(RequestParams requestParams, SearchRequest request) {
+        buildBasicQuery(requestParams, request, null);
+    }
+
+    private static void buildBasicQuery(RequestParams requestParams, SearchRequest request, QueryBuilder extraFilter) {
         // 1. boolQuery
         BoolQueryBuilder boolQuery = QueryBuilders.boolQuery();
         // must
@@ -228,37 +751,27 @@ public class HotelService extends ServiceImpl<HotelMapper, Hotel> implements IHo
                     .gte(requestParams.getMinPrice())
                     .lte(requestParams.getMaxPrice()));
         }
-        //2. functionScoreQuery
-        FunctionScoreQueryBuilder functionScoreQuery =
-                QueryBuilders.functionScoreQuery(
-                        boolQuery,
-                        new FunctionScoreQueryBuilder.FilterFunctionBuilder[]{
-                                new FunctionScoreQueryBuilder.FilterFunctionBuilder(
-                                        QueryBuilders.termQuery("isAD", true),
-                                        ScoreFunctionBuilders.weightFactorFunction(10)
-                                )
-                        });
-
+        if (extraFilter != null) {
+            boolQuery.filter(extraFilter);
+        }
         request.source().query(boolQuery);
     }
 
-    private PageResult handleResponse(SearchResponse response) {
+    private PageResult handleResponse(SearchResponse response, boolean geoSort) {
         SearchHits hits = response.getHits();
 
         long total = hits.getTotalHits().value;
 
         SearchHit[] docs = hits.getHits();
 
-        List<HotelDoc> list = new ArrayList<>();
+        List<HotelDoc> list = new ArrayList<>(docs.length);
 
         for (SearchHit doc : docs) {
-            String json = doc.getSourceAsString();
-
-            HotelDoc hotelDoc = JSON.parseObject(json, HotelDoc.class);
+            HotelDoc hotelDoc = toHotelDoc(doc);
 
             Object[] sortValues = doc.getSortValues();
 
-            if (sortValues.length > 0) {
+            if (geoSort && sortValues.length > 0) {
                 hotelDoc.setDistance(sortValues[0]);
             }
 
@@ -267,4 +780,13 @@ public class HotelService extends ServiceImpl<HotelMapper, Hotel> implements IHo
 
         return new PageResult(total, list);
     }
+
+    /**
+     * Binds the hit source straight from the response bytes, without first
+     * copying it into a String.
+     */
+    static HotelDoc toHotelDoc(SearchHit hit) {
+        BytesRef source = hit.getSourceRef().toBytesRef();
+        return JSON.parseObject(source.bytes, source.offset, source.length, StandardCharsets.UTF_8, HotelDoc.class);
+    }
 }
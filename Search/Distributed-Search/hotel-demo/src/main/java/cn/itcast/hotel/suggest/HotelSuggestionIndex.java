@@ -0,0 +1,169 @@
+package cn.itcast.hotel.suggest;
+
+import cn.itcast.hotel.config.SearchProperties;
+import cn.itcast.hotel.pojo.Hotel;
+import cn.itcast.hotel.pojo.HotelDoc;
+import cn.itcast.hotel.service.IHotelService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory copy of the completion corpus (brands and business areas, see
+ * {@link HotelDoc}), built from tb_hotel once the application is ready and
+ * kept current by the index writes in HotelService. Until the first build
+ * completes it answers nothing and callers fall back to Elasticsearch.
+ * <p>
+ * MQ consumers compete, so each instance only sees part of the index writes;
+ * the corpus is rebuilt from tb_hotel every suggestionRebuildInterval. A
+ * rebuild fills a new trie off to the side, and writes that arrive meanwhile
+ * are replayed onto it before the swap, so older chunk data never wins.
+ */
+@Slf4j
+@Component
+public class HotelSuggestionIndex {
+
+    private static final int CHUNK_SIZE = 1000;
+
+    @Lazy
+    @Autowired
+    private IHotelService hotelService;
+
+    @Autowired
+    private SearchProperties properties;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // trie, termsByHotel and pendingWrites are guarded by lock
+    private SuggestionTrie trie = new SuggestionTrie();
+
+    private Map<Long, List<String>> termsByHotel = new HashMap<>();
+
+    // writes seen while a rebuild is running, null otherwise
+    private List<Map.Entry<Long, List<String>>> pendingWrites;
+
+    private volatile boolean ready;
+
+    private ScheduledExecutorService scheduler;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "hotel-suggestion-build");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::rebuild, 0, properties.getSuggestionRebuildInterval(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            pendingWrites = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        try {
+            SuggestionTrie nextTrie = new SuggestionTrie();
+            Map<Long, List<String>> nextTerms = new HashMap<>();
+            long lastId = 0;
+            List<Hotel> chunk;
+            while (!(chunk = hotelService.listAfter(lastId, CHUNK_SIZE)).isEmpty()) {
+                lastId = chunk.get(chunk.size() - 1).getId();
+                for (Hotel hotel : chunk) {
+                    put(nextTrie, nextTerms, hotel.getId(), new HotelDoc(hotel).getSuggestion());
+                }
+            }
+            lock.writeLock().lock();
+            try {
+                for (Map.Entry<Long, List<String>> write : pendingWrites) {
+                    put(nextTrie, nextTerms, write.getKey(), write.getValue());
+                }
+                trie = nextTrie;
+                termsByHotel = nextTerms;
+                pendingWrites = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            ready = true;
+            log.info("suggestion index built with {} terms", nextTrie.size());
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                pendingWrites = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.warn("suggestion index build failed, keeping the previous one", e);
+        }
+    }
+
+    public List<String> suggest(String prefix, int limit) {
+        if (!ready || prefix == null || prefix.trim().isEmpty()) {
+            return Collections.emptyList();
+        }
+        lock.readLock().lock();
+        try {
+            return trie.prefix(prefix, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void update(Collection<HotelDoc> hotelDocs) {
+        for (HotelDoc hotelDoc : hotelDocs) {
+            put(hotelDoc.getId(), hotelDoc.getSuggestion());
+        }
+    }
+
+    public void remove(Collection<Long> ids) {
+        for (Long id : ids) {
+            put(id, Collections.emptyList());
+        }
+    }
+
+    private void put(Long id, List<String> terms) {
+        lock.writeLock().lock();
+        try {
+            put(trie, termsByHotel, id, terms);
+            if (pendingWrites != null) {
+                pendingWrites.add(new AbstractMap.SimpleImmutableEntry<>(id, terms));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void put(SuggestionTrie trie, Map<Long, List<String>> termsByHotel, Long id, List<String> terms) {
+        List<String> old = terms.isEmpty() ? termsByHotel.remove(id) : termsByHotel.put(id, terms);
+        if (old != null) {
+            old.forEach(trie::remove);
+        }
+        terms.forEach(trie::add);
+    }
+}
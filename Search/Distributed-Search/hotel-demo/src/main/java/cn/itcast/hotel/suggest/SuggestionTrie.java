@@ -0,0 +1,100 @@
+package cn.itcast.hotel.suggest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Case-insensitive prefix trie over suggestion terms. Every term keeps a
+ * reference count, so a term shared by several hotels stays until the last
+ * of them is removed. Not thread-safe.
+ */
+public class SuggestionTrie {
+
+    private final Node root = new Node();
+
+    private int size;
+
+    public void add(String term) {
+        if (term == null || term.isEmpty()) {
+            return;
+        }
+        Node node = root;
+        for (char c : normalize(term).toCharArray()) {
+            node = node.children.computeIfAbsent(c, k -> new Node());
+        }
+        if (node.count++ == 0) {
+            node.term = term;
+            size++;
+        }
+    }
+
+    public void remove(String term) {
+        if (term == null || term.isEmpty()) {
+            return;
+        }
+        String key = normalize(term);
+        Node[] path = new Node[key.length() + 1];
+        path[0] = root;
+        for (int i = 0; i < key.length(); i++) {
+            path[i + 1] = path[i].children.get(key.charAt(i));
+            if (path[i + 1] == null) {
+                return;
+            }
+        }
+        Node node = path[key.length()];
+        if (node.count == 0 || --node.count > 0) {
+            return;
+        }
+        node.term = null;
+        size--;
+        // prune the branch that no longer leads to any term
+        for (int i = key.length(); i > 0 && path[i].count == 0 && path[i].children.isEmpty(); i--) {
+            path[i - 1].children.remove(key.charAt(i - 1));
+        }
+    }
+
+    /**
+     * Terms starting with the prefix, in lexicographic order, at most limit of them.
+     */
+    public List<String> prefix(String prefix, int limit) {
+        List<String> result = new ArrayList<>();
+        Node node = root;
+        for (char c : normalize(prefix).toCharArray()) {
+            node = node.children.get(c);
+            if (node == null) {
+                return result;
+            }
+        }
+        collect(node, result, limit);
+        return result;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private static void collect(Node node, List<String> result, int limit) {
+        if (node.count > 0) {
+            result.add(node.term);
+        }
+        for (Map.Entry<Character, Node> child : node.children.entrySet()) {
+            if (result.size() >= limit) {
+                return;
+            }
+            collect(child.getValue(), result, limit);
+        }
+    }
+
+    private static String normalize(String term) {
+        return term.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static class Node {
+        private final TreeMap<Character, Node> children = new TreeMap<>();
+        private int count;
+        private String term;
+    }
+}
@@ -2,12 +2,14 @@ package cn.itcast.hotel.web;
 
 import cn.itcast.hotel.pojo.PageResult;
 import cn.itcast.hotel.pojo.RequestParams;
+import cn.itcast.hotel.pojo.SearchResult;
 import cn.itcast.hotel.service.IHotelService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/hotel")
@@ -17,17 +19,27 @@ public class HotelController {
     private IHotelService iHotelService;
 
     @PostMapping("/list")
-    public PageResult search(@RequestBody RequestParams requestParams) {
-        return iHotelService.search(requestParams);
+    public CompletableFuture<PageResult> search(@RequestBody RequestParams requestParams) {
+        return iHotelService.searchAsync(requestParams);
+    }
+
+    @PostMapping("/scroll")
+    public PageResult searchAfter(@RequestBody RequestParams requestParams) {
+        return iHotelService.searchAfter(requestParams);
+    }
+
+    @PostMapping("/search")
+    public SearchResult searchWithFilters(@RequestBody RequestParams requestParams) {
+        return iHotelService.searchWithFilters(requestParams);
     }
 
     @PostMapping("/filters")
-    public Map<String, List<String>> getFilters(@RequestBody RequestParams requestParams) {
-        return iHotelService.filter(requestParams);
+    public CompletableFuture<Map<String, List<String>>> getFilters(@RequestBody RequestParams requestParams) {
+        return iHotelService.filterAsync(requestParams);
     }
 
     @GetMapping("/suggestion")
-    public List<String> getSuggestion(@RequestParam("key") String key) {
-        return iHotelService.getSuggestion(key);
+    public CompletableFuture<List<String>> getSuggestion(@RequestParam("key") String key) {
+        return iHotelService.getSuggestionAsync(key);
     }
 }
@@ -0,0 +1,16 @@
+package cn.itcast.hotel.web.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * A scroll cursor that cannot be resumed, because it is malformed or its
+ * point in time has expired. Clients restart paging without a cursor.
+ */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidCursorException extends IllegalArgumentException {
+
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,83 @@
+package cn.itcast.hotel.index;
+
+import cn.itcast.hotel.config.ReconcileProperties;
+import cn.itcast.hotel.service.IHotelService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+public class HotelReconcilerTest {
+
+    private IHotelService hotelService;
+
+    private HotelReconciler reconciler;
+
+    @BeforeEach
+    void setUp() {
+        hotelService = mock(IHotelService.class);
+        when(hotelService.bulkSync(anyCollection(), anyCollection())).thenReturn(Collections.emptySet());
+        ReconcileProperties properties = new ReconcileProperties();
+
+        reconciler = new HotelReconciler();
+        ReflectionTestUtils.setField(reconciler, "hotelService", hotelService);
+        ReflectionTestUtils.setField(reconciler, "properties", properties);
+    }
+
+    @Test
+    void testOnlyDifferingHotelsAreFixed() {
+        HotelReconciler.Cursor rows = cursor(new long[]{1, 11}, new long[]{2, 22}, new long[]{3, 33}, new long[]{5, 55});
+        HotelReconciler.Cursor docs = cursor(new long[]{1, 11}, new long[]{3, 30}, new long[]{4, 44}, new long[]{5, 55}, new long[]{6, 66});
+
+        HotelReconciler.Report report = reconciler.reconcile(rows, docs);
+
+        // orphaned docs 4 and 6 go through the same row lookup, bulkSync deletes them if the rows are still gone
+        verify(hotelService).bulkSync(Arrays.asList(2L, 3L, 4L, 6L), Collections.emptyList());
+        assertEquals(3, report.getMatched());
+        assertEquals(1, report.getStale());
+        assertEquals(1, report.getMissing());
+        assertEquals(2, report.getOrphaned());
+    }
+
+    @Test
+    void testFixesAreSentInBulks() {
+        ReconcileProperties properties = new ReconcileProperties();
+        properties.setBulkSize(2);
+        ReflectionTestUtils.setField(reconciler, "properties", properties);
+        HotelReconciler.Cursor rows = cursor(new long[]{1, 1}, new long[]{2, 2}, new long[]{3, 3});
+        HotelReconciler.Cursor docs = cursor();
+
+        reconciler.reconcile(rows, docs);
+
+        verify(hotelService).bulkSync(Arrays.asList(1L, 2L), Collections.emptyList());
+        verify(hotelService).bulkSync(Collections.singletonList(3L), Collections.emptyList());
+    }
+
+    @Test
+    void testNothingToFix() {
+        reconciler.reconcile(cursor(new long[]{1, 1}), cursor(new long[]{1, 1}));
+
+        verify(hotelService, never()).bulkSync(anyCollection(), anyCollection());
+    }
+
+    // serves the pairs in chunks of two, like keyset pages
+    private static HotelReconciler.Cursor cursor(long[]... pairs) {
+        return new HotelReconciler.Cursor(last -> {
+            List<long[]> chunk = new ArrayList<>();
+            for (long[] pair : pairs) {
+                if ((last == null || pair[0] > last[0]) && chunk.size() < 2) {
+                    chunk.add(pair);
+                }
+            }
+            return chunk;
+        });
+    }
+}
@@ -0,0 +1,104 @@
+package cn.itcast.hotel.mq;
+
+import cn.itcast.hotel.config.IndexerProperties;
+import cn.itcast.hotel.service.IHotelService;
+import com.rabbitmq.client.AlreadyClosedException;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.ShutdownSignalException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+public class HotelIndexBatcherTest {
+
+    private IHotelService hotelService;
+
+    private Channel channel;
+
+    private HotelIndexBatcher batcher;
+
+    @BeforeEach
+    void setUp() {
+        hotelService = mock(IHotelService.class);
+        channel = mock(Channel.class);
+        IndexerProperties properties = new IndexerProperties();
+        properties.setBatchSize(3);
+        properties.setMaxAttempts(2);
+
+        batcher = new HotelIndexBatcher();
+        ReflectionTestUtils.setField(batcher, "hotelService", hotelService);
+        ReflectionTestUtils.setField(batcher, "properties", properties);
+    }
+
+    @Test
+    void testInsertThenDeleteCollapses() throws Exception {
+        when(hotelService.bulkSync(anyCollection(), anyCollection())).thenReturn(Collections.emptySet());
+
+        batcher.submitInsert(Collections.singletonList(1L), channel, 1);
+        batcher.submitInsert(Collections.singletonList(2L), channel, 2);
+        batcher.submitDelete(Collections.singletonList(1L), channel, 3);
+        batcher.flush();
+
+        verify(hotelService).bulkSync(Collections.singletonList(2L), Collections.singletonList(1L));
+        verify(channel).basicAck(1, false);
+        verify(channel).basicAck(2, false);
+        verify(channel).basicAck(3, false);
+    }
+
+    @Test
+    void testFlushWhenBatchIsFull() throws Exception {
+        when(hotelService.bulkSync(anyCollection(), anyCollection())).thenReturn(Collections.emptySet());
+
+        batcher.submitInsert(Arrays.asList(1L, 2L, 3L), channel, 1);
+
+        verify(hotelService).bulkSync(Arrays.asList(1L, 2L, 3L), Collections.emptyList());
+        verify(channel).basicAck(1, false);
+    }
+
+    @Test
+    void testFailedIdsAreRequeued() throws Exception {
+        List<Long> ids = Arrays.asList(1L, 2L);
+        when(hotelService.bulkSync(anyCollection(), anyCollection())).thenReturn(Collections.singleton(2L));
+
+        batcher.submitInsert(Collections.singletonList(1L), channel, 1);
+        batcher.submitInsert(ids, channel, 2);
+        batcher.flush();
+
+        verify(channel).basicAck(1, false);
+        verify(channel).basicNack(2, false, true);
+    }
+
+    @Test
+    void testRepeatedlyFailingIdIsDeadLettered() throws Exception {
+        when(hotelService.bulkSync(anyCollection(), anyCollection())).thenReturn(Collections.singleton(1L));
+
+        batcher.submitInsert(Collections.singletonList(1L), channel, 1);
+        batcher.flush();
+        batcher.submitInsert(Collections.singletonList(1L), channel, 2);
+        batcher.flush();
+
+        verify(channel).basicNack(1, false, true);
+        verify(channel).basicNack(2, false, false);
+    }
+
+    @Test
+    void testClosedChannelDoesNotStopOtherDeliveries() throws Exception {
+        when(hotelService.bulkSync(anyCollection(), anyCollection())).thenReturn(Collections.emptySet());
+        Channel closed = mock(Channel.class);
+        doThrow(new AlreadyClosedException(new ShutdownSignalException(false, false, null, null)))
+                .when(closed).basicAck(1, false);
+
+        batcher.submitInsert(Collections.singletonList(1L), closed, 1);
+        batcher.submitInsert(Collections.singletonList(2L), channel, 2);
+        batcher.flush();
+
+        verify(channel).basicAck(2, false);
+    }
+}
@@ -0,0 +1,37 @@
+package cn.itcast.hotel.mq;
+
+import com.rabbitmq.client.Channel;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+public class HotelListenerTest {
+
+    @Test
+    void testSingleIdPayload() {
+        assertEquals(Collections.singletonList(36934L), HotelListener.toIds(36934L));
+    }
+
+    @Test
+    void testListPayload() {
+        assertEquals(Arrays.asList(1L, 2L, 3L), HotelListener.toIds(new ArrayList<>(Arrays.asList(1L, 2L, 3L))));
+    }
+
+    @Test
+    void testUnknownPayloadIsRejectedWithoutRequeue() throws Exception {
+        Channel channel = mock(Channel.class);
+        HotelListener listener = new HotelListener();
+
+        listener.listenHotelInsertOrUpdate("36934", channel, 7);
+        listener.listenHotelDelete(Arrays.asList(1L, "x"), channel, 8);
+
+        verify(channel).basicNack(7, false, false);
+        verify(channel).basicNack(8, false, false);
+    }
+}
@@ -0,0 +1,33 @@
+package cn.itcast.hotel.pojo;
+
+import cn.itcast.hotel.web.exception.InvalidCursorException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SearchCursorTest {
+
+    @Test
+    void testRoundTripKeepsSortValueTypes() {
+        SearchCursor cursor = new SearchCursor(new Object[]{1.5d, 36934L, "上海"}, "pit-1");
+
+        SearchCursor decoded = SearchCursor.decode(cursor.encode());
+
+        assertArrayEquals(new Object[]{1.5d, 36934L, "上海"}, decoded.getSortValues());
+        assertEquals("pit-1", decoded.getPitId());
+    }
+
+    @Test
+    void testMalformedCursorIsRejected() {
+        String autoType = Base64.getUrlEncoder().encodeToString(
+                "{\"@type\":\"java.net.Inet4Address\",\"val\":\"x\"}".getBytes(StandardCharsets.UTF_8));
+
+        assertThrows(InvalidCursorException.class, () -> SearchCursor.decode("not base64!"));
+        assertThrows(InvalidCursorException.class, () -> SearchCursor.decode(autoType));
+        assertThrows(InvalidCursorException.class, () -> SearchCursor.decode(
+                Base64.getUrlEncoder().encodeToString("{\"v\":[\"x1\"]}".getBytes(StandardCharsets.UTF_8))));
+    }
+}
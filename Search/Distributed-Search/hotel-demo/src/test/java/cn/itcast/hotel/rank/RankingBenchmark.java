@@ -0,0 +1,112 @@
+package cn.itcast.hotel.rank;
+
+import cn.itcast.hotel.config.RankingProperties;
+import cn.itcast.hotel.pojo.RequestParams;
+import org.apache.http.HttpHost;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static cn.itcast.hotel.constants.HotelConstants.LIST_FIELDS;
+
+/**
+ * Compares the latency of the same list query against the hotel index at
+ * localhost:9200 unranked (plain bool) and ranked (function_score with every
+ * ranking function on). Needs a populated index; run main.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RankingBenchmark {
+
+    @Param({"", "外滩"})
+    private String key;
+
+    private RestHighLevelClient client;
+
+    private RequestParams params;
+
+    private HotelRanking unranked;
+
+    private HotelRanking ranked;
+
+    @Setup
+    public void setUp() {
+        client = new RestHighLevelClient(RestClient.builder(HttpHost.create("localhost:9200")));
+        params = new RequestParams();
+        params.setKey(key);
+        params.setCity("上海");
+        params.setMinPrice(300);
+        params.setMaxPrice(3000);
+
+        RankingProperties properties = new RankingProperties();
+        properties.setScoreFactor(true);
+        properties.setPriceDecayScale(500);
+        HotelRankingFunction adBoost = new AdBoostRanking();
+        HotelRankingFunction score = new ScoreRanking();
+        HotelRankingFunction priceDecay = new PriceDecayRanking();
+        for (HotelRankingFunction function : Arrays.asList(adBoost, score, priceDecay)) {
+            ReflectionTestUtils.setField(function, "rankingProperties", properties);
+        }
+        unranked = new HotelRanking(Collections.emptyList());
+        ranked = new HotelRanking(Arrays.asList(adBoost, score, priceDecay));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        client.close();
+    }
+
+    @Benchmark
+    public SearchResponse unranked() throws IOException {
+        return client.search(request(unranked), RequestOptions.DEFAULT);
+    }
+
+    @Benchmark
+    public SearchResponse ranked() throws IOException {
+        return client.search(request(ranked), RequestOptions.DEFAULT);
+    }
+
+    private SearchRequest request(HotelRanking ranking) {
+        BoolQueryBuilder boolQuery = QueryBuilders.boolQuery();
+        if (key.isEmpty()) {
+            boolQuery.must(QueryBuilders.matchAllQuery());
+        } else {
+            boolQuery.must(QueryBuilders.matchQuery("all", key));
+        }
+        boolQuery.filter(QueryBuilders.termQuery("city", params.getCity()));
+        boolQuery.filter(QueryBuilders.rangeQuery("price").gte(params.getMinPrice()).lte(params.getMaxPrice()));
+
+        SearchRequest request = new SearchRequest("hotel");
+        request.source()
+                .query(ranking.apply(boolQuery, params))
+                .fetchSource(LIST_FIELDS, null)
+                .size(10);
+        return request;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(RankingBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,108 @@
+package cn.itcast.hotel.service.impl;
+
+import cn.itcast.hotel.pojo.Hotel;
+import cn.itcast.hotel.pojo.HotelDoc;
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.search.SearchHit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static cn.itcast.hotel.constants.HotelConstants.LIST_FIELDS;
+
+/**
+ * Compares mapping one page of hits the old way (full _source, copied into a
+ * String, then parsed) with the current way (list fields only, parsed from the
+ * source bytes). Run main and compare gc.alloc.rate.norm for bytes per page.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HandleResponseBenchmark {
+
+    @Param({"10", "50"})
+    private int pageSize;
+
+    private SearchHit[] fullHits;
+
+    private SearchHit[] filteredHits;
+
+    @Setup
+    public void setUp() {
+        fullHits = new SearchHit[pageSize];
+        filteredHits = new SearchHit[pageSize];
+        for (int i = 0; i < pageSize; i++) {
+            HotelDoc hotelDoc = new HotelDoc(hotel(i));
+            hotelDoc.setIsAD(i % 7 == 0);
+            JSONObject full = (JSONObject) JSON.toJSON(hotelDoc);
+            JSONObject filtered = new JSONObject();
+            for (String field : LIST_FIELDS) {
+                filtered.put(field, full.get(field));
+            }
+            fullHits[i] = hit(i, full.toJSONString());
+            filteredHits[i] = hit(i, filtered.toJSONString());
+        }
+    }
+
+    @Benchmark
+    public List<HotelDoc> fullSourceAsString() {
+        List<HotelDoc> list = new ArrayList<>();
+        for (SearchHit hit : fullHits) {
+            list.add(JSON.parseObject(hit.getSourceAsString(), HotelDoc.class));
+        }
+        return list;
+    }
+
+    @Benchmark
+    public List<HotelDoc> filteredSourceBytes() {
+        List<HotelDoc> list = new ArrayList<>(filteredHits.length);
+        for (SearchHit hit : filteredHits) {
+            list.add(HotelService.toHotelDoc(hit));
+        }
+        return list;
+    }
+
+    private static SearchHit hit(int docId, String json) {
+        SearchHit hit = new SearchHit(docId);
+        hit.sourceRef(new BytesArray(json.getBytes(StandardCharsets.UTF_8)));
+        return hit;
+    }
+
+    private static Hotel hotel(int i) {
+        Hotel hotel = new Hotel();
+        hotel.setId(60000L + i);
+        hotel.setName("上海虹桥祥源希尔顿酒店" + i);
+        hotel.setAddress("红松东路1116号");
+        hotel.setPrice(1108);
+        hotel.setScore(45);
+        hotel.setBrand("希尔顿");
+        hotel.setCity("上海");
+        hotel.setStarName("五钻");
+        hotel.setBusiness("虹桥地区/古北/动物园地区/天山路沿线");
+        hotel.setLatitude("31.18746");
+        hotel.setLongitude("121.395312");
+        hotel.setPic("https://m.tuniucdn.com/fb3/s1/2n9c/tQRqDTFkHnHzMZiDKjcGV81ekvc_w200_h200_c1_t0.jpg");
+        return hotel;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(HandleResponseBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
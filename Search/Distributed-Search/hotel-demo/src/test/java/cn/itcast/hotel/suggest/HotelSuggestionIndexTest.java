@@ -0,0 +1,45 @@
+package cn.itcast.hotel.suggest;
+
+import cn.itcast.hotel.pojo.Hotel;
+import cn.itcast.hotel.pojo.HotelDoc;
+import cn.itcast.hotel.service.IHotelService;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class HotelSuggestionIndexTest {
+
+    @Test
+    void testWritesDuringRebuildWinOverChunkData() {
+        IHotelService hotelService = mock(IHotelService.class);
+        HotelSuggestionIndex index = new HotelSuggestionIndex();
+        ReflectionTestUtils.setField(index, "hotelService", hotelService);
+
+        // the row is read, then an MQ update renames the brand before the swap
+        when(hotelService.listAfter(eq(0L), anyInt())).thenAnswer(invocation -> {
+            index.update(Collections.singletonList(new HotelDoc(hotel("如家", "虹桥"))));
+            return Collections.singletonList(hotel("7天", "虹桥"));
+        });
+        when(hotelService.listAfter(eq(1L), anyInt())).thenReturn(Collections.emptyList());
+
+        index.rebuild();
+
+        assertEquals(Collections.singletonList("如家"), index.suggest("如", 10));
+        assertEquals(Collections.emptyList(), index.suggest("7", 10));
+    }
+
+    private static Hotel hotel(String brand, String business) {
+        Hotel hotel = new Hotel();
+        hotel.setId(1L);
+        hotel.setBrand(brand);
+        hotel.setBusiness(business);
+        return hotel;
+    }
+}
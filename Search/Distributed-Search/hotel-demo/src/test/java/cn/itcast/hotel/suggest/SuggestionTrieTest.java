@@ -0,0 +1,40 @@
+package cn.itcast.hotel.suggest;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class SuggestionTrieTest {
+
+    @Test
+    void testPrefix() {
+        SuggestionTrie trie = new SuggestionTrie();
+        trie.add("如家");
+        trie.add("如家精选");
+        trie.add("希尔顿");
+        trie.add("Hilton");
+
+        assertEquals(Arrays.asList("如家", "如家精选"), trie.prefix("如", 10));
+        assertEquals(Collections.singletonList("如家"), trie.prefix("如", 1));
+        assertEquals(Collections.singletonList("Hilton"), trie.prefix("hil", 10));
+        assertEquals(Collections.emptyList(), trie.prefix("万豪", 10));
+    }
+
+    @Test
+    void testRemoveKeepsSharedTerms() {
+        SuggestionTrie trie = new SuggestionTrie();
+        trie.add("虹桥地区");
+        trie.add("虹桥地区");
+        trie.add("虹桥机场");
+
+        trie.remove("虹桥地区");
+        assertEquals(Arrays.asList("虹桥地区", "虹桥机场"), trie.prefix("虹桥", 10));
+
+        trie.remove("虹桥地区");
+        assertEquals(Collections.singletonList("虹桥机场"), trie.prefix("虹桥", 10));
+        assertEquals(1, trie.size());
+    }
+}
@@ -0,0 +1,10 @@
+-- ----------------------------
+-- Ad flag for tb_hotel
+-- hotels with is_ad = 1 get the ad boost in relevance-sorted search;
+-- reindex, reconcile and the MQ sync all copy it into the isAD field of the hotel index
+-- ----------------------------
+ALTER TABLE `tb_hotel`
+  ADD COLUMN `is_ad` tinyint(1) NOT NULL DEFAULT 0 COMMENT '是否广告' AFTER `pic`;
+
+-- hotels flagged by hand in the index so far, list them here before the next reconcile or reindex runs
+-- UPDATE `tb_hotel` SET `is_ad` = 1 WHERE `id` IN (...);
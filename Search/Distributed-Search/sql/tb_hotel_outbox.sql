@@ -0,0 +1,16 @@
+-- ----------------------------
+-- Table structure for tb_hotel_outbox
+-- hotel change events written by hotel-admin in the same transaction as tb_hotel,
+-- relayed to the hotel.topic exchange and deleted once the broker confirmed them;
+-- an instance claims rows (claimed_by / claimed_until) before publishing them
+-- ----------------------------
+DROP TABLE IF EXISTS `tb_hotel_outbox`;
+CREATE TABLE `tb_hotel_outbox`  (
+  `id` bigint(20) NOT NULL AUTO_INCREMENT,
+  `hotel_id` bigint(20) NOT NULL COMMENT '酒店id',
+  `routing_key` varchar(32) CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci NOT NULL COMMENT 'hotel.insert 或 hotel.delete',
+  `create_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  `claimed_by` varchar(64) CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci NULL DEFAULT NULL COMMENT '正在发布这一行的hotel-admin实例',
+  `claimed_until` datetime NULL DEFAULT NULL COMMENT '认领到期时间，过期后其他实例可以重新认领',
+  PRIMARY KEY (`id`) USING BTREE
+) ENGINE = InnoDB CHARACTER SET = utf8mb4 COLLATE = utf8mb4_general_ci ROW_FORMAT = DYNAMIC;